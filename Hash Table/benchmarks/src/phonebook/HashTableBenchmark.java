@@ -0,0 +1,341 @@
+package phonebook;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import phonebook.hashes.CollisionResolver;
+import phonebook.hashes.HashFunction;
+import phonebook.hashes.HashTable;
+import phonebook.hashes.OffHeapHashTable;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link HashTableBenchmark} measures the <b>wall-clock</b> cost of the {@link HashTable} behind every
+ * {@link CollisionResolver}, where {@link phonebook.utils.Probes} only counts cells. Every benchmark runs once per
+ * combination of its parameters. By default only {@code resolver} and {@code keys} take more than one value, which
+ * keeps a full run to a few dozen trials per benchmark; the values below are the ones worth sweeping, and can be
+ * given from the command line, e.g. {@code -p resolver=LINEAR_PROBING,SWISS_TABLE -p keys=NAMES} to narrow a run
+ * down, or {@code -p hashing=STRING_HASH_CODE,MURMUR3 -p size=1000,100000 -p loadFactor=0.25,0.45
+ * -p hitRatio=1.0,0.5,0.0 -p readRatio=0.9,0.5} for the full sweep, which takes thousands of trials:</p>
+ * <ul>
+ *     <li>{@code resolver}: the {@link CollisionResolver} whose table is measured, as built by {@link Phonebook}.</li>
+ *     <li>{@code keys}: the {@link KeyDistribution} the keys are drawn from: sequential phone numbers or names.</li>
+ *     <li>{@code hashing}: the {@link Hashing} the table hashes its keys with. {@code STRING_HASH_CODE} by default.</li>
+ *     <li>{@code size}: the minimum number of entries in the table. 100000 by default.</li>
+ *     <li>{@code loadFactor}: the load factor to reach before measuring. Entries are added beyond {@code size} until
+ *     {@link HashTable#size()} / {@link HashTable#capacity()} is at least this much, so the same {@code size} can be
+ *     measured right after a resizing (about 0.25 for the openly addressed tables) or right before the next one
+ *     (just under 0.5). Tables which resize earlier than that, like {@link phonebook.hashes.CuckooHashTable}
+ *     at 0.4, stop at four times {@code size}. 0.45 by default.</li>
+ *     <li>{@code hitRatio}: the fraction of searches that are successful. 0.5 by default.</li>
+ *     <li>{@code readRatio}: the fraction of searches in the {@link #mixed(Mix)} workload; the rest of its
+ *     operations delete an entry and insert it back. 0.9 by default.</li>
+ * </ul>
+ *
+ * <p>All benchmarks report the average time of a <b>single</b> operation, except for {@link #fill(Fresh, Blackhole)},
+ * which reports the time it takes to insert {@code size} entries into a new table. {@link #probes(Lookups, ProbeCounts)}
+ * also reports the total number of {@code probes} and {@code searches} it made, whose ratio is the average probe
+ * length, e.g to compare the {@code hashing} of sequential phone numbers.</p>
+ *
+ * @author Yosefe Eshete
+ * @see CollisionResolver
+ * @see HashTable
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashTableBenchmark {
+
+    private static final long SEED = 47;
+    private static final int OPERATIONS = 1 << 14; // Pre-computed operations that every benchmark cycles through.
+
+    /**
+     * The shapes of keys our phonebook stores.
+     */
+    public enum KeyDistribution {
+        /**
+         * Consecutive phone numbers, e.g 301-000-0000, 301-000-0001 and so on. They share long prefixes and
+         * their {@link String#hashCode()}s are consecutive too.
+         */
+        PHONE_NUMBERS {
+            @Override
+            String key(int i) {
+                return String.format("%03d-%03d-%04d", 301 + i / 10_000_000, (i / 10_000) % 1000, i % 10_000);
+            }
+        },
+
+        /**
+         * Full names, built out of common first and last names, e.g &quot;Mary Johnson&quot;. Once every
+         * combination has been used, a generation number is added, e.g &quot;Mary Johnson 2&quot;.
+         */
+        NAMES {
+            @Override
+            String key(int i) {
+                int combinations = FIRST_NAMES.length * LAST_NAMES.length;
+                String name = FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+                return (i < combinations) ? name : name + " " + (i / combinations + 1);
+            }
+        };
+
+        private static final String[] FIRST_NAMES = {"Mary", "James", "Patricia", "John", "Jennifer", "Robert",
+                "Linda", "Michael", "Elizabeth", "William", "Barbara", "David", "Susan", "Richard", "Jessica", "Joseph",
+                "Sarah", "Thomas", "Karen", "Charles", "Nancy", "Christopher", "Lisa", "Daniel", "Betty", "Matthew",
+                "Sandra", "Anthony", "Ashley", "Mark", "Dorothy", "Arnold", "Tiffany", "Jessie", "DeAndre", "Yosefe"};
+        private static final String[] LAST_NAMES = {"Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia",
+                "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson",
+                "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris",
+                "Sanchez", "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright",
+                "Scott", "Torres", "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall", "Eshete"};
+
+        /**
+         * Returns the i-th key of this distribution. Different indices always give different keys.
+         * @param i A non-negative index.
+         * @return The i-th key.
+         */
+        abstract String key(int i);
+    }
+
+    /**
+     * The {@link HashFunction}s to compare.
+     */
+    public enum Hashing {
+        /**
+         * {@link HashFunction#STRING_HASH_CODE}, the default of all tables.
+         */
+        STRING_HASH_CODE {
+            @Override
+            HashFunction function() {
+                return HashFunction.STRING_HASH_CODE;
+            }
+        },
+
+        /**
+         * {@link HashFunction#seeded()}, with a new seed for every table.
+         */
+        MURMUR3 {
+            @Override
+            HashFunction function() {
+                return HashFunction.seeded();
+            }
+        };
+
+        /**
+         * Returns the {@link HashFunction} for a new table.
+         * @return A {@link HashFunction}.
+         */
+        abstract HashFunction function();
+    }
+
+    /**
+     * The parameters shared by all benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Empty {
+
+        @Param
+        public CollisionResolver resolver;
+
+        @Param({"PHONE_NUMBERS", "NAMES"})
+        public KeyDistribution keys;
+
+        @Param({"STRING_HASH_CODE"})
+        public Hashing hashing;
+
+        @Param({"100000"})
+        public int size;
+
+        String[] present;
+
+        @Setup(Level.Trial)
+        public void generateKeys() {
+            present = new String[size];
+            for (int i = 0; i < size; i++) {
+                present[i] = keys.key(i);
+            }
+        }
+    }
+
+    /**
+     * A table filled with at least {@code size} entries, up to the requested {@code loadFactor}.
+     */
+    @State(Scope.Thread)
+    public static class Filled extends Empty {
+
+        @Param({"0.45"})
+        public double loadFactor;
+
+        HashTable table;
+        int entries;        // The keys in the table are keys.key(0) to keys.key(entries - 1).
+        int[] victims;      // Entries to delete and insert back, in order.
+        int next;
+
+        @Setup(Level.Trial)
+        public void fill() {
+            table = Phonebook.createTable(resolver, hashing.function());
+            entries = 0;
+            while (entries < size || (table.size() < loadFactor * table.capacity() && entries < 4 * size)) {
+                table.put(keys.key(entries), keys.key(entries));
+                entries++;
+            }
+            Random rng = new Random(SEED);
+            victims = new int[OPERATIONS];
+            for (int i = 0; i < OPERATIONS; i++) {
+                victims[i] = rng.nextInt(entries);
+            }
+        }
+    }
+
+    /**
+     * The table filled by the last invocation of {@link #fill(Fresh, Blackhole)}. The direct buffers of an
+     * {@link OffHeapHashTable} are given back after every invocation, out of the measured time: left to the garbage
+     * collector, they would pile up until an allocation in the middle of a fill has to wait for them to be freed.
+     */
+    @State(Scope.Thread)
+    public static class Fresh extends Empty {
+
+        HashTable table;
+
+        @TearDown(Level.Invocation)
+        public void release() {
+            if (table instanceof OffHeapHashTable) {
+                ((OffHeapHashTable) table).release();
+            }
+            table = null;
+        }
+    }
+
+    /**
+     * A {@link Filled} table, along with keys to search for, some of which are in it.
+     */
+    @State(Scope.Thread)
+    public static class Lookups extends Filled {
+
+        @Param({"0.5"})
+        public double hitRatio;
+
+        String[] searches;
+
+        @Setup(Level.Trial)
+        public void pickKeys() {
+            Random rng = new Random(SEED);
+            searches = new String[OPERATIONS];
+            for (int i = 0; i < OPERATIONS; i++) {
+                // Misses are keys of the same distribution that were never inserted.
+                searches[i] = keys.key(rng.nextDouble() < hitRatio ? rng.nextInt(entries) : entries + rng.nextInt(entries));
+            }
+        }
+    }
+
+    /**
+     * {@link Lookups} interleaved with deletions and re-insertions.
+     */
+    @State(Scope.Thread)
+    public static class Mix extends Lookups {
+
+        @Param({"0.9"})
+        public double readRatio;
+
+        boolean[] reads;
+
+        @Setup(Level.Trial)
+        public void pickOperations() {
+            Random rng = new Random(SEED + 1);
+            reads = new boolean[OPERATIONS];
+            for (int i = 0; i < OPERATIONS; i++) {
+                reads[i] = rng.nextDouble() < readRatio;
+            }
+        }
+    }
+
+    /**
+     * The probes made by {@link #probes(Lookups, ProbeCounts)}, reported next to its time.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class ProbeCounts {
+
+        public long probes;
+        public long searches;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            probes = 0;
+            searches = 0;
+        }
+    }
+
+    // Deletes an entry and inserts it back, so that the table keeps its size across iterations.
+    private static void deleteAndPutBack(Filled state, Blackhole bh) {
+        String key = state.keys.key(state.victims[state.next++ & (OPERATIONS - 1)]);
+        bh.consume(state.table.remove(key).getValue());
+        bh.consume(state.table.put(key, key).getValue());
+    }
+
+    /**
+     * Inserts {@code size} entries into a new table, resizings included.
+     */
+    @Benchmark
+    public HashTable fill(Fresh state, Blackhole bh) {
+        HashTable table = Phonebook.createTable(state.resolver, state.hashing.function());
+        for (String key : state.present) {
+            bh.consume(table.put(key, key).getValue());
+        }
+        state.table = table;
+        return table;
+    }
+
+    /**
+     * Searches for a key, successfully with probability {@code hitRatio}.
+     */
+    @Benchmark
+    public String get(Lookups state) {
+        return state.table.get(state.searches[state.next++ & (OPERATIONS - 1)]).getValue();
+    }
+
+    /**
+     * Searches for a key like {@link #get(Lookups)}, and counts the probes it makes.
+     */
+    @Benchmark
+    public String probes(Lookups state, ProbeCounts counts) {
+        Probes probe = state.table.get(state.searches[state.next++ & (OPERATIONS - 1)]);
+        counts.probes += probe.getProbes();
+        counts.searches++;
+        return probe.getValue();
+    }
+
+    /**
+     * Searches for a key like {@link #get(Lookups)}, but through {@link HashTable#lookup(String)}, which skips the
+     * {@link phonebook.utils.Probes} allocation. This is the search behind {@link Phonebook#getNumberOf(String)}.
+     */
+    @Benchmark
+    public String lookup(Lookups state) {
+        return state.table.lookup(state.searches[state.next++ & (OPERATIONS - 1)]);
+    }
+
+    /**
+     * Deletes an entry of the table and then inserts it back.
+     */
+    @Benchmark
+    public void churn(Filled state, Blackhole bh) {
+        deleteAndPutBack(state, bh);
+    }
+
+    /**
+     * Either searches for a key, with probability {@code readRatio}, or deletes an entry and inserts it back.
+     */
+    @Benchmark
+    public void mixed(Mix state, Blackhole bh) {
+        int i = state.next & (OPERATIONS - 1);
+        if (state.reads[i]) {
+            bh.consume(state.table.get(state.searches[i]).getValue());
+            state.next++;
+        } else {
+            deleteAndPutBack(state, bh);
+        }
+    }
+}
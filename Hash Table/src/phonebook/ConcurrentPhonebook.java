@@ -0,0 +1,243 @@
+package phonebook;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+import phonebook.hashes.*;
+
+/**
+ * <p>{@link ConcurrentPhonebook} is a <b>thread-safe</b> {@link Phonebook}: any number of threads can look up, add and
+ * delete entries at the same time, without an external lock. None of our {@link HashTable}s are thread-safe, so the
+ * phonebook is split into a fixed number of <b>segments</b>, each of which owns a pair of {@link HashTable}s and
+ * a {@link StampedLock}. A name (or number) lives in the segment its hash code selects, in that segment's
+ * names-to-numbers (or numbers-to-names) table.</p>
+ *
+ * <p>Lookups take the <b>read lock</b> of their segment, so any number of them can run on a segment at once, and
+ * they only wait for writers of that same segment. They do not read the tables optimistically, without any lock:
+ * the lookups of some of our tables can loop forever, or write to the table, when a writer changes it under them.
+ * Writers take the write locks of every segment that an update touches, always in increasing segment order so that two
+ * writers can never deadlock. Writes to different segments proceed in parallel.</p>
+ *
+ * <p>Like {@link Phonebook}, every person has <b>exactly one</b> phone number and every phone number belongs to
+ * <b>exactly one</b> person, and this holds at all times, no matter how updates interleave: adding an entry whose name
+ * or number is already in the phonebook replaces the old entry (or entries) in <b>both</b> directions, atomically.</p>
+ *
+ * @author Yosefe Eshete
+ * @see Phonebook
+ * @see HashTable
+ * @see StampedLock
+ */
+public class ConcurrentPhonebook {
+
+    /**
+     * The number of segments used by {@link #ConcurrentPhonebook(CollisionResolver, CollisionResolver)}.
+     */
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    private static class Segment {
+        final StampedLock lock = new StampedLock();
+        final HashTable namesToNumbers;
+        final HashTable numbersToNames;
+
+        Segment(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+            namesToNumbers = Phonebook.createTable(namesToNumbersHash);
+            numbersToNames = Phonebook.createTable(numbersToNamesHash);
+        }
+
+        String read(HashTable table, String key) {
+            long stamp = lock.readLock();
+            try {
+                return table.lookup(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return namesToNumbers.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    private final Segment[] segments;
+
+    private int segmentOf(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16; // The low bits of String.hashCode() are similar for keys with a common prefix.
+        return (h & 0x7fffffff) % segments.length;
+    }
+
+    /*
+     * Write-locks the distinct segments among the given ones, in increasing order. Returns the stamps, indexed by
+     * segment, with 0 for segments that were not locked.
+     */
+    private long[] lockAll(int[] wanted) {
+        long[] stamps = new long[segments.length];
+        int[] sorted = wanted.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] >= 0 && stamps[sorted[i]] == 0) {
+                stamps[sorted[i]] = segments[sorted[i]].lock.writeLock();
+            }
+        }
+        return stamps;
+    }
+
+    private void unlockAll(long[] stamps) {
+        for (int i = segments.length - 1; i >= 0; i--) {
+            if (stamps[i] != 0) {
+                segments[i].lock.unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    /**
+     * Instantiates a new {@link ConcurrentPhonebook} with {@link #DEFAULT_SEGMENTS} segments.
+     *
+     * @param namesToNumbersHash A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be used to
+     *                           create our hash tables with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be used to
+     *                           create our hash tables with <b>phone numbers</b> as keys.
+     * @see CollisionResolver
+     */
+    public ConcurrentPhonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+        this(namesToNumbersHash, numbersToNamesHash, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Instantiates a new {@link ConcurrentPhonebook} with the given number of segments. More segments allow more writers
+     * to proceed in parallel, at the cost of two {@link HashTable}s per segment.
+     *
+     * @param namesToNumbersHash A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be used to
+     *                           create our hash tables with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be used to
+     *                           create our hash tables with <b>phone numbers</b> as keys.
+     * @param segments The number of segments.
+     * @throws IllegalArgumentException if segments is not positive.
+     */
+    public ConcurrentPhonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash, int segments) {
+        if (segments <= 0)
+            throw new IllegalArgumentException("Provided: segments=" + segments);
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment(namesToNumbersHash, numbersToNamesHash);
+        }
+    }
+
+    /** Retrieves the phone number associated with the provided full name. If the name is not in the database,
+     * this method returns {@code null}. This method does not block unless writers keep updating the same segment.
+     * @param name The full name of the owner of the phone number that is being searched for.
+     * @return The phone number associated with name, or {@code null} if name is {@code null} or if name
+     * is not in the {@link ConcurrentPhonebook}.
+     */
+    public String getNumberOf(String name) {
+        if (name == null)
+            return null;
+        Segment segment = segments[segmentOf(name)];
+        return segment.read(segment.namesToNumbers, name);
+    }
+
+    /** Retrieves the full name of the owner of the provided phone number. If the phone number is not in the database,
+     * this method returns {@code null}. This method does not block unless writers keep updating the same segment.
+     * @param number The phone number whose owner is being searched for.
+     * @return The full name of the owner of number, or {@code null} if number is {@code null} or if number
+     * is not in the {@link ConcurrentPhonebook}.
+     */
+    public String getOwnerOf(String number) {
+        if (number == null)
+            return null;
+        Segment segment = segments[segmentOf(number)];
+        return segment.read(segment.numbersToNames, number);
+    }
+
+    /** Adds the tuple &lt; name, number &gt; in the {@link ConcurrentPhonebook}. If name already has a number, or
+     * number already has an owner, those entries are <b>replaced</b> in both directions, atomically.
+     * @param name The full name of the number's owner.
+     * @param number The phone number of the person.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     */
+    public void addEntry(String name, String number) {
+        if(name == null || number == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        int nameSegment = segmentOf(name);
+        int numberSegment = segmentOf(number);
+        int[] wanted = {nameSegment, numberSegment, -1, -1};
+        int[] needed;
+        long[] stamps;
+        String oldNumber;
+        String oldName;
+
+        while (true) {
+            stamps = lockAll(wanted);
+            try {
+                // The entries we are replacing may live in segments we haven't locked yet. If so, start over with them.
+                oldNumber = segments[nameSegment].namesToNumbers.lookup(name);
+                oldName = segments[numberSegment].numbersToNames.lookup(number);
+                needed = new int[]{nameSegment, numberSegment,
+                        (oldNumber == null) ? -1 : segmentOf(oldNumber), (oldName == null) ? -1 : segmentOf(oldName)};
+                if ((needed[2] < 0 || stamps[needed[2]] != 0) && (needed[3] < 0 || stamps[needed[3]] != 0)) {
+                    if (oldNumber != null) {
+                        segments[nameSegment].namesToNumbers.remove(name);
+                        segments[needed[2]].numbersToNames.remove(oldNumber);
+                    }
+                    if (oldName != null && !oldName.equals(name)) {
+                        segments[numberSegment].numbersToNames.remove(number);
+                        segments[needed[3]].namesToNumbers.remove(oldName);
+                    }
+                    segments[nameSegment].namesToNumbers.put(name, number);
+                    segments[numberSegment].numbersToNames.put(number, name);
+                    return;
+                }
+            } finally {
+                unlockAll(stamps);
+            }
+            wanted = needed;
+        }
+    }
+
+    /** Deletes the entry characterized by the arguments provided. If the entry is <b>not</b> contained by this
+     * {@link ConcurrentPhonebook} instance, i.e if name does not currently have number as its phone number,
+     * this method has <b>no effect</b>.
+     * @param name The &quot;owner&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @param number The &quot;number&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     */
+    public void deleteEntry(String name, String number) {
+        if(number == null || name == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        int nameSegment = segmentOf(name);
+        int numberSegment = segmentOf(number);
+        long[] stamps = lockAll(new int[]{nameSegment, numberSegment});
+        try {
+            if (number.equals(segments[nameSegment].namesToNumbers.lookup(name))) {
+                segments[nameSegment].namesToNumbers.remove(name);
+                segments[numberSegment].numbersToNames.remove(number);
+            }
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /** Returns the number of entries in the phonebook. Segments are counted one after the other, so updates that
+     * run concurrently with this method may or may not be reflected in its result.
+     * @return the number of entries in the phonebook.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** Queries the phonebook for emptiness.
+     * @return {@code true} if, and only if, there are 0 entries in this {@link ConcurrentPhonebook}, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
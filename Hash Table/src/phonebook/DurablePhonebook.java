@@ -0,0 +1,289 @@
+package phonebook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import phonebook.hashes.*;
+
+/**
+ * <p>{@link DurablePhonebook} is a {@link Phonebook} whose entries survive crashes. It lives in a directory that holds
+ * at most one <b>snapshot</b>, as written by {@link Phonebook#snapshot(Path)}, and one {@link WriteAheadLog} of the
+ * mutations made since that snapshot. Every {@link #addEntry(String, String)} and {@link #deleteEntry(String, String)}
+ * call is appended to the log before it returns, so durability costs a sequential write to the end of a file
+ * instead of a full dump of the phonebook, and fsyncs are batched as described in {@link WriteAheadLog}.</p>
+ *
+ * <p>Opening a {@link DurablePhonebook} <b>recovers</b> its state: the latest snapshot is loaded, and the log is
+ * replayed on top of it. To keep the log (and the time it takes to replay it) bounded, {@link #checkpoint()} writes a
+ * new snapshot and starts an empty log, which is called automatically once the log outgrows a configurable size.
+ * Snapshots and logs are numbered by <b>generation</b> ({@code phonebook-N.snapshot} and {@code phonebook-N.log}):
+ * a checkpoint writes generation N + 1 in full before deleting generation N, so a crash at any point of
+ * a checkpoint recovers either of the two, which hold the same entries.</p>
+ *
+ * <p>All methods are {@code synchronized}, except that writers wait for their log records to reach the disk
+ * <b>outside</b> the lock, so that concurrent writers share fsyncs.</p>
+ *
+ * @author Yosefe Eshete
+ * @see Phonebook
+ * @see WriteAheadLog
+ * @see MappedHashTable
+ */
+public class DurablePhonebook implements Closeable {
+
+    /**
+     * The log size at which {@link #DurablePhonebook(Path, CollisionResolver, CollisionResolver)} checkpoints automatically.
+     */
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+    private static final String PREFIX = "phonebook-";
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path directory;
+    private final CollisionResolver namesToNumbersHash;
+    private final CollisionResolver numbersToNamesHash;
+    private final long syncIntervalMillis;
+    private final long checkpointBytes;
+
+    private Phonebook phonebook;
+    private WriteAheadLog log;
+    private long generation;
+
+    private Path snapshotFile(long generation) {
+        return directory.resolve(PREFIX + generation + SNAPSHOT_SUFFIX);
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(PREFIX + generation + LOG_SUFFIX);
+    }
+
+    // The generation of a snapshot or log file, or -1 if it is not one of ours.
+    private static long generationOf(Path file, String suffix) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // The generation of the newest complete snapshot, or 0 if there is none.
+    private long latestGeneration() throws IOException {
+        long latest = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                latest = Math.max(latest, generationOf(file, SNAPSHOT_SUFFIX));
+            }
+        }
+        return latest;
+    }
+
+    // Deletes the snapshots and logs of every generation before the current one that a crash left behind.
+    private void deleteOlderGenerations() throws IOException {
+        long g;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*")) {
+            for (Path file : files) {
+                g = Math.max(generationOf(file, SNAPSHOT_SUFFIX), generationOf(file, LOG_SUFFIX));
+                if (g >= 0 && g < generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Deletes the snapshot and log of the generation before the current one, the only one a checkpoint leaves behind.
+    private void deletePreviousGeneration() throws IOException {
+        Files.deleteIfExists(snapshotFile(generation - 1));
+        Files.deleteIfExists(logFile(generation - 1));
+    }
+
+    private Phonebook load(Path snapshot) throws IOException {
+        Phonebook loaded = new Phonebook(namesToNumbersHash, numbersToNamesHash);
+        if (Files.exists(snapshot)) {
+            Phonebook mapped = Phonebook.open(snapshot);
+            ArrayList<String> names = new ArrayList<>(mapped.size());
+            ArrayList<String> numbers = new ArrayList<>(mapped.size());
+            mapped.forEach((name, number) -> {
+                names.add(name);
+                numbers.add(number);
+            });
+            loaded.addEntries(names.toArray(new String[0]), numbers.toArray(new String[0]), true);
+        }
+        return loaded;
+    }
+
+    /**
+     * Opens (or creates) the durable phonebook in the given directory, syncing every mutation before it returns and
+     * checkpointing whenever the log reaches {@link #DEFAULT_CHECKPOINT_BYTES}.
+     * @param directory The directory of the snapshot and log files. It is created if it does not exist.
+     * @param namesToNumbersHash A {@link CollisionResolver} for the table with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A {@link CollisionResolver} for the table with <b>phone numbers</b> as keys.
+     * @throws IOException if the directory cannot be read or recovered from.
+     */
+    public DurablePhonebook(Path directory, CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash)
+            throws IOException {
+        this(directory, namesToNumbersHash, numbersToNamesHash, 0, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Opens (or creates) the durable phonebook in the given directory.
+     * @param directory The directory of the snapshot and log files. It is created if it does not exist.
+     * @param namesToNumbersHash A {@link CollisionResolver} for the table with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A {@link CollisionResolver} for the table with <b>phone numbers</b> as keys.
+     * @param syncIntervalMillis 0 to force every mutation to disk before it returns, or the number of milliseconds
+     *                           between background forces of the log.
+     * @param checkpointBytes The log size at which a mutation triggers a {@link #checkpoint()}.
+     * @throws IOException if the directory cannot be read or recovered from.
+     * @throws IllegalArgumentException if syncIntervalMillis is negative or checkpointBytes is not positive.
+     * @see WriteAheadLog#WriteAheadLog(Path, long)
+     */
+    public DurablePhonebook(Path directory, CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash,
+                            long syncIntervalMillis, long checkpointBytes) throws IOException {
+        if (syncIntervalMillis < 0 || checkpointBytes <= 0)
+            throw new IllegalArgumentException("Provided: syncIntervalMillis=" + syncIntervalMillis +
+                    " and checkpointBytes=" + checkpointBytes);
+        this.directory = directory;
+        this.namesToNumbersHash = namesToNumbersHash;
+        this.numbersToNamesHash = numbersToNamesHash;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.checkpointBytes = checkpointBytes;
+
+        Files.createDirectories(directory);
+        generation = latestGeneration();
+        phonebook = load(snapshotFile(generation));
+        WriteAheadLog.replay(logFile(generation), (operation, name, number) -> {
+            if (operation == WriteAheadLog.ADD) {
+                phonebook.addEntry(name, number);
+            } else {
+                phonebook.deleteEntry(name, number);
+            }
+        });
+        deleteOlderGenerations();
+        log = new WriteAheadLog(logFile(generation), syncIntervalMillis);
+    }
+
+    /** Retrieves the phone number associated with the provided full name.
+     * @param name The full name of the owner of the phone number that is being searched for.
+     * @return The phone number associated with name, or {@code null} if name is {@code null} or if name
+     * is not in the {@link DurablePhonebook}.
+     * @see Phonebook#getNumberOf(String)
+     */
+    public synchronized String getNumberOf(String name) {
+        return phonebook.getNumberOf(name);
+    }
+
+    /** Retrieves the full name of the owner of the provided phone number.
+     * @param number The phone number whose owner is being searched for.
+     * @return The full name of the owner of number, or {@code null} if number is {@code null} or if number
+     * is not in the {@link DurablePhonebook}.
+     * @see Phonebook#getOwnerOf(String)
+     */
+    public synchronized String getOwnerOf(String number) {
+        return phonebook.getOwnerOf(number);
+    }
+
+    /** Adds the tuple &lt; name, number &gt; in the {@link DurablePhonebook}, and logs it before returning.
+     * @param name The full name of the number's owner.
+     * @param number The phone number of the person.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     * @throws UncheckedIOException if the log cannot be written.
+     * @see Phonebook#addEntry(String, String)
+     */
+    public void addEntry(String name, String number) {
+        if(name == null || number == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        mutate(WriteAheadLog.ADD, name, number);
+    }
+
+    /** Deletes the entry characterized by the arguments provided, and logs it before returning.
+     * @param name The &quot;owner&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @param number The &quot;number&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     * @throws UncheckedIOException if the log cannot be written.
+     * @see Phonebook#deleteEntry(String, String)
+     */
+    public void deleteEntry(String name, String number) {
+        if(number == null || name == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        mutate(WriteAheadLog.DELETE, name, number);
+    }
+
+    private void mutate(byte operation, String name, String number) {
+        WriteAheadLog appendedTo;
+        long position;
+        synchronized (this) {
+            appendedTo = log;
+            position = log.append(operation, name, number);
+            if (operation == WriteAheadLog.ADD) {
+                phonebook.addEntry(name, number);
+            } else {
+                phonebook.deleteEntry(name, number);
+            }
+            if (log.size() >= checkpointBytes) {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return; // The new snapshot already holds this mutation.
+            }
+        }
+        appendedTo.awaitDurable(position);
+    }
+
+    /**
+     * Writes a snapshot of the current entries and starts a new, empty log, then deletes the previous snapshot and log.
+     * This is log <b>compaction</b>: however many mutations the old log held, the new generation holds one record
+     * per entry.
+     * @throws IOException if the snapshot or the new log cannot be written.
+     */
+    public synchronized void checkpoint() throws IOException {
+        phonebook.snapshot(snapshotFile(generation + 1));
+        log.close();
+        generation++;
+        log = new WriteAheadLog(logFile(generation), syncIntervalMillis);
+        deletePreviousGeneration();
+    }
+
+    /**
+     * Forces every mutation made so far to disk, regardless of the sync interval.
+     * @throws IOException if the log cannot be written or forced.
+     */
+    public void sync() throws IOException {
+        WriteAheadLog current;
+        synchronized (this) {
+            current = log;
+        }
+        current.sync();
+    }
+
+    /** Returns the number of entries in the phonebook.
+     * @return the number of entries in the phonebook.
+     */
+    public synchronized int size() {
+        return phonebook.size();
+    }
+
+    /** Queries the phonebook for emptiness.
+     * @return {@code true} if, and only if, there are 0 entries in this {@link DurablePhonebook}, {@code false} otherwise.
+     */
+    public synchronized boolean isEmpty() {
+        return phonebook.isEmpty();
+    }
+
+    /**
+     * Forces every mutation to disk and closes the log. The {@link DurablePhonebook} should not be used afterwards.
+     * @throws IOException if the log cannot be written, forced or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+}
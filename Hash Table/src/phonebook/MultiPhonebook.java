@@ -0,0 +1,118 @@
+package phonebook;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import phonebook.hashes.HashFunction;
+import phonebook.hashes.MultiValuedHashTable;
+
+/**
+ * <p>{@link MultiPhonebook} is the <b>multi-valued</b> counterpart of {@link Phonebook}: a person can have any number
+ * of phone numbers, and a phone number (a shared office or family line, say) can belong to any number of people.
+ * It stores &lt; Full Name, Phone Number&gt; pairs in two {@link MultiValuedHashTable}s, one with names as keys and one
+ * with numbers as keys, so that both {@link #getNumbersOf(String)} and {@link #getOwnersOf(String)} take
+ * <em>amortized constant</em> time, and hand out the stored values without copying them.</p>
+ *
+ * <p>Unlike {@link Phonebook}, adding an entry never replaces another one: it only adds the pair, if it is not there
+ * already. Deleting an entry only deletes that pair, and a name or number disappears along with its last pair.</p>
+ *
+ * @author Yosefe Eshete
+ * @see Phonebook
+ * @see MultiValuedHashTable
+ */
+public class MultiPhonebook {
+
+    private final MultiValuedHashTable namesToNumbers;
+    private final MultiValuedHashTable numbersToNames;
+
+    /**
+     * Instantiates a new, empty {@link MultiPhonebook}.
+     */
+    public MultiPhonebook() {
+        this(0);
+    }
+
+    /**
+     * Instantiates a new, empty {@link MultiPhonebook} with room for the given number of names and numbers, so that
+     * filling it in does not have to grow its tables over and over.
+     * @param expectedEntries The number of distinct names, and of distinct numbers, the phonebook should be able to
+     *                        hold before growing.
+     * @throws IllegalArgumentException if expectedEntries is negative.
+     */
+    public MultiPhonebook(int expectedEntries) {
+        namesToNumbers = new MultiValuedHashTable(expectedEntries, HashFunction.STRING_HASH_CODE);
+        numbersToNames = new MultiValuedHashTable(expectedEntries, HashFunction.STRING_HASH_CODE);
+    }
+
+    /** Retrieves every phone number associated with the provided full name.
+     * @param name The full name of the owner of the phone numbers that are being searched for.
+     * @return An unmodifiable {@link List} of the numbers of name, in the order they were added, which later updates
+     * of the phonebook do not affect. It is empty if name is {@code null} or not in the {@link MultiPhonebook}.
+     */
+    public List<String> getNumbersOf(String name) {
+        return namesToNumbers.get(name);
+    }
+
+    /** Retrieves the full names of every owner of the provided phone number.
+     * @param number The phone number whose owners are being searched for.
+     * @return An unmodifiable {@link List} of the owners of number, in the order they were added, which later updates
+     * of the phonebook do not affect. It is empty if number is {@code null} or not in the {@link MultiPhonebook}.
+     */
+    public List<String> getOwnersOf(String number) {
+        return numbersToNames.get(number);
+    }
+
+    /** Adds the tuple &lt; name, number &gt; to the {@link MultiPhonebook}, next to any other numbers of name
+     * and owners of number. Adding a tuple that is already there has no effect.
+     * @param name The full name of the number's owner.
+     * @param number The phone number of the person.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     */
+    public void addEntry(String name, String number) {
+        if(name == null || number == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        if (namesToNumbers.put(name, number)) {
+            numbersToNames.put(number, name);
+        }
+    }
+
+    /** Deletes the tuple &lt; name, number &gt;, and only that one. If it is not in the {@link MultiPhonebook},
+     * this method has <b>no effect</b>.
+     * @param name The &quot;owner&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @param number The &quot;number&quot; part of the &lt; owner, phone number &gt; tuple.
+     * @throws IllegalArgumentException if either name or number is {@code null}.
+     */
+    public void deleteEntry(String name, String number) {
+        if(number == null || name == null)
+            throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        if (namesToNumbers.remove(name, number)) {
+            numbersToNames.remove(number, name);
+        }
+    }
+
+    /** Passes every &lt; owner, phone number &gt; tuple of this {@link MultiPhonebook} to the given action, in no
+     * particular order.
+     * @param action Receives the name and the number of every entry.
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        namesToNumbers.forEach(action);
+    }
+
+    /** Returns the number of &lt; owner, phone number &gt; tuples in the phonebook.
+     * @return the number of entries in the phonebook.
+     */
+    public int size() {
+        assert namesToNumbers.size() == numbersToNames.size() :
+                "Mismatch in internal hash table counts. Names->Numbers has count: " +
+                        namesToNumbers.size() + ", while Numbers->Names has count:  " +
+                        numbersToNames.size() + ".";
+        return namesToNumbers.size();
+    }
+
+    /** Queries the phonebook for emptiness.
+     * @return {@code true} if, and only if, there are 0 entries in this {@link MultiPhonebook}, {@code false} otherwise.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+}
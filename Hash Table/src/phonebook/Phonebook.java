@@ -1,6 +1,21 @@
 package phonebook;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiConsumer;
+
 import phonebook.hashes.*;
+import phonebook.utils.StringPool;
 
 /**
  * <p>{@link Phonebook} is an abstraction over phonebooks: databases of &lt; Full Name,
@@ -25,11 +40,29 @@ import phonebook.hashes.*;
  * @see SeparateChainingHashTable
  * @see LinearProbingHashTable
  * @see QuadraticProbingHashTable
+ * @see CompactLinearProbingHashTable
+ * @see RobinHoodHashTable
+ * @see CuckooHashTable
+ * @see IncrementalLinearProbingHashTable
  */
 public class Phonebook {
 
     private HashTable namesToNumbers ;
     private HashTable numbersToNames ;
+    // The keys of namesToNumbers in sorted order, built on the first range query and kept up to date from then on.
+    private TreeSet<String> sortedNames;
+    // The canonical instance of every name and number, if this deduplicates them; see intern(String).
+    private StringPool strings;
+
+    // The first int of every snapshot file: the ASCII codes of "PHBK".
+    private static final int SNAPSHOT_MAGIC = 0x5048424B;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HEADER_BYTES = 16;
+
+    private Phonebook(HashTable namesToNumbers, HashTable numbersToNames) {
+        this.namesToNumbers = namesToNumbers;
+        this.numbersToNames = numbersToNames;
+    }
 
 
     /**
@@ -43,39 +76,93 @@ public class Phonebook {
      * @see CollisionResolver
      */
     public Phonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash) {
+        namesToNumbers = createTable(namesToNumbersHash);
+        numbersToNames = createTable(numbersToNamesHash);
+    }
 
-        switch(namesToNumbersHash){
-            case SEPARATE_CHAINING:
-                namesToNumbers = new SeparateChainingHashTable();
-                break;
-            case LINEAR_PROBING:
-                namesToNumbers = new LinearProbingHashTable(false);
-                break;
-            case ORDERED_LINEAR_PROBING:
-                namesToNumbers = new OrderedLinearProbingHashTable(false);
-                break;
-            case QUADRATIC_PROBING:
-                namesToNumbers = new QuadraticProbingHashTable(false);
-                break;
-            default:
-                throw new RuntimeException("Encountered unsupported CollisionResolver argument: " + namesToNumbersHash  + "." );
+    /**
+     * Instantiates a new {@link Phonebook} like {@link #Phonebook(CollisionResolver, CollisionResolver)}, which can
+     * also <b>deduplicate</b> its names and numbers. A single {@link #addEntry(String, String)} already stores the
+     * same two {@link String} instances in both internal hash tables, but equal strings that arrive as different
+     * instances, such as a name read again from a file to update its number, are otherwise all kept. A deduplicating
+     * {@link Phonebook} replaces every name and number it is given with the first equal one it has seen, so that
+     * each distinct string is stored once, at the cost of one more hash lookup per name and number added.
+     *
+     * @param namesToNumbersHash A {@link CollisionResolver} for the table with <b>peoples' names</b> as keys.
+     * @param numbersToNamesHash A {@link CollisionResolver} for the table with <b>phone numbers</b> as keys.
+     * @param deduplicate Whether equal names and numbers should be stored as a single instance.
+     * @see StringPool
+     */
+    public Phonebook(CollisionResolver namesToNumbersHash, CollisionResolver numbersToNamesHash, boolean deduplicate) {
+        this(namesToNumbersHash, numbersToNamesHash);
+        if (deduplicate)
+            strings = new StringPool();
+    }
+
+    // Deleted and replaced strings stay in the pool until it has outgrown the tables and the pending strings, which
+    // are about to be interned, and it is then built anew from the strings the tables still hold. This takes amortized
+    // constant time per string, and must not run in the middle of a batch, whose strings are not in the tables yet.
+    private void pruneStrings(int pending) {
+        int held = namesToNumbers.size() + numbersToNames.size();
+        if (strings.size() > 4 * (held + pending) + 64) {
+            strings.clear();
+            namesToNumbers.forEach((key, value) -> {
+                strings.intern(key);
+                strings.intern(value);
+            });
+            numbersToNames.forEach((key, value) -> {
+                strings.intern(key);
+                strings.intern(value);
+            });
         }
+    }
 
-        switch(numbersToNamesHash){
+    /**
+     * Creates an empty {@link HashTable} of the subtype that implements the provided collision resolution strategy.
+     * Openly addressed tables are created with <b>hard</b> deletion.
+     * @param resolver A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be created.
+     * @return A new, empty {@link HashTable}.
+     * @throws RuntimeException if resolver is not supported.
+     */
+    static HashTable createTable(CollisionResolver resolver) {
+        return createTable(resolver, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Creates an empty {@link HashTable} like {@link #createTable(CollisionResolver)}, but with the provided
+     * {@link HashFunction}. {@link CuckooHashTable} keeps its own pair of seeded hash functions, and ignores it.
+     * @param resolver A {@link CollisionResolver} that will govern which subtype of {@link HashTable} will be created.
+     * @param hashFunction The {@link HashFunction} that the table will hash its keys with.
+     * @return A new, empty {@link HashTable}.
+     * @throws RuntimeException if resolver is not supported.
+     */
+    static HashTable createTable(CollisionResolver resolver, HashFunction hashFunction) {
+        switch(resolver){
             case SEPARATE_CHAINING:
-                numbersToNames = new SeparateChainingHashTable();
-                break;
+                return new SeparateChainingHashTable(SeparateChainingHashTable.DEFAULT_MAX_LOAD_FACTOR,
+                        SeparateChainingHashTable.DEFAULT_MIN_LOAD_FACTOR, hashFunction);
             case LINEAR_PROBING:
-                numbersToNames = new LinearProbingHashTable(false);
-                break;
+                return new LinearProbingHashTable(false, CapacityPolicy.PRIME, hashFunction);
             case ORDERED_LINEAR_PROBING:
-                numbersToNames = new OrderedLinearProbingHashTable(false);
-                break;
+                return new OrderedLinearProbingHashTable(false, CapacityPolicy.PRIME, hashFunction);
             case QUADRATIC_PROBING:
-                numbersToNames = new QuadraticProbingHashTable(false);
-                break;
+                return new QuadraticProbingHashTable(false, CapacityPolicy.PRIME, hashFunction);
+            case COMPACT_LINEAR_PROBING:
+                return new CompactLinearProbingHashTable(false, hashFunction);
+            case ROBIN_HOOD:
+                return new RobinHoodHashTable(CapacityPolicy.PRIME, hashFunction);
+            case CUCKOO:
+                return new CuckooHashTable();
+            case INCREMENTAL_LINEAR_PROBING:
+                return new IncrementalLinearProbingHashTable(false, CapacityPolicy.PRIME, hashFunction);
+            case POOLED_SEPARATE_CHAINING:
+                return new PooledSeparateChainingHashTable(hashFunction);
+            case SWISS_TABLE:
+                return new SwissHashTable(hashFunction);
+            case OFF_HEAP:
+                return new OffHeapHashTable(hashFunction);
             default:
-                throw new RuntimeException("Encountered unsupported Collision Resolver " + numbersToNamesHash + ".");
+                throw new RuntimeException("Encountered unsupported CollisionResolver argument: " + resolver + ".");
         }
     }
 
@@ -86,7 +173,7 @@ public class Phonebook {
      * is not in the {@link Phonebook}.
      */
     public String getNumberOf(String name) {
-        return (name == null) ? null : namesToNumbers.get(name).getValue();
+        return namesToNumbers.lookup(name);
     }
 
     /** Retrieves the full name of the owner of the provided phone number. If the phone number is not in the database,
@@ -96,7 +183,7 @@ public class Phonebook {
      * is not in the {@link Phonebook}.
      */
     public String getOwnerOf(String number) {
-        return (number == null) ? null : numbersToNames.get(number).getValue();
+        return numbersToNames.lookup(number);
     }
 
     /** Adds the tuple &lt; name, number &gt; in the {@link Phonebook}. If either name or
@@ -108,8 +195,70 @@ public class Phonebook {
     public void addEntry(String name, String number) {
         if(name == null || number == null)
             throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
+        if (strings != null) {
+            pruneStrings(2);
+            name = strings.intern(name);
+            number = strings.intern(number);
+        }
         namesToNumbers.put(name, number);
         numbersToNames.put(number, name);
+        if (sortedNames != null)
+            sortedNames.add(name);
+    }
+
+    /** Adds all the tuples &lt; names[i], numbers[i] &gt; in the {@link Phonebook}, with the same effect as calling
+     * {@link #addEntry(String, String)} on each of them in order. Both internal hash tables are grown <b>once</b>, to
+     * a capacity that fits all the new entries, before any of them are inserted.
+     * @param names The full names of the numbers' owners.
+     * @param numbers The phone numbers of the people, in the same order as their names.
+     * @param parallel If {@code true}, the phone numbers to names table is filled in by a separate thread, while
+     *                 the calling thread fills in the names to phone numbers table.
+     * @throws IllegalArgumentException if either array or any of their elements is {@code null}, or if the arrays
+     * have different lengths. Nothing is added in that case.
+     * @see HashTable#putAll(String[], String[])
+     */
+    public void addEntries(String[] names, String[] numbers, boolean parallel) {
+        if(names == null || numbers == null)
+            throw new IllegalArgumentException("Provided: names=" + names + " and numbers=" + numbers);
+        if(names.length != numbers.length)
+            throw new IllegalArgumentException("Provided: " + names.length + " names and " + numbers.length + " numbers.");
+        for (int i = 0; i < names.length; i++) {
+            if(names[i] == null || numbers[i] == null)
+                throw new IllegalArgumentException("Provided: name=" + names[i] + " and number= " + numbers[i] + " at index " + i + ".");
+        }
+        if (strings != null) {
+            names = names.clone();
+            numbers = numbers.clone();
+            pruneStrings(2 * names.length);
+            for (int i = 0; i < names.length; i++) {
+                names[i] = strings.intern(names[i]);
+                numbers[i] = strings.intern(numbers[i]);
+            }
+        }
+        if (!parallel) {
+            namesToNumbers.putAll(names, numbers);
+            numbersToNames.putAll(numbers, names);
+        } else {
+            putAllInParallel(names, numbers);
+        }
+        if (sortedNames != null)
+            sortedNames.addAll(Arrays.asList(names));
+    }
+
+    private void putAllInParallel(String[] names, String[] numbers) {
+        FutureTask<Integer> reverse = new FutureTask<>(() -> numbersToNames.putAll(numbers, names));
+        new Thread(reverse, "Phonebook.addEntries").start();
+        namesToNumbers.putAll(names, numbers);
+        try {
+            reverse.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Filling in the phone numbers to names table failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while filling in the phone numbers to names table.", e);
+        }
     }
 
     /** Deletes the entry characterized by the arguments provided. If either argument is {@code null}, or if the
@@ -123,6 +272,148 @@ public class Phonebook {
             throw new IllegalArgumentException("Provided: name=" + name + " and number= " + number);
         namesToNumbers.remove(name);
         numbersToNames.remove(number);
+        // Some tables keep a second entry for a name that was added twice, and only remove one at a time.
+        if (sortedNames != null && !namesToNumbers.containsKey(name))
+            sortedNames.remove(name);
+    }
+
+    /** Retrieves, in lexicographic order, the names in the {@link Phonebook} that start with the provided prefix,
+     * for example to autocomplete a name as it is being typed. Long results can be read a page at a time, by passing
+     * the last name of a page as the after argument of the call for the next one. The first call to this method or
+     * to {@link #getNamesInRange(String, String, int)} sorts every name in the {@link Phonebook}; after that, the
+     * sorted names are kept up to date by {@link #addEntry(String, String)} and {@link #deleteEntry(String, String)},
+     * and each call takes O(log n + limit) time. Searches by name or number are not affected either way.
+     * @param prefix The prefix of the names to retrieve. The empty string matches every name.
+     * @param after If not {@code null}, only names that come strictly after it are retrieved.
+     * @param limit The maximum number of names to retrieve.
+     * @return A new {@link List} of at most limit names, in lexicographic order.
+     * @throws IllegalArgumentException if prefix is {@code null} or limit is negative.
+     */
+    public List<String> getNamesWithPrefix(String prefix, String after, int limit) {
+        NavigableSet<String> tail;
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+        if(prefix == null || limit < 0)
+            throw new IllegalArgumentException("Provided: prefix=" + prefix + " and limit=" + limit);
+        if (after != null && after.compareTo(prefix) >= 0)
+            tail = sortedNames().tailSet(after, false);
+        else
+            tail = sortedNames().tailSet(prefix, true);
+        for (String name : tail) {
+            if (names.size() == limit || !name.startsWith(prefix))
+                break;
+            names.add(name);
+        }
+        return names;
+    }
+
+    /** Retrieves, in lexicographic order, the names in the {@link Phonebook} between from (inclusive) and to
+     * (exclusive). The next page of a long result starts at the last name of the previous one followed by
+     * {@code '\0'}, the smallest string that comes after it. The names are kept sorted as described in
+     * {@link #getNamesWithPrefix(String, String, int)}, and each call takes O(log n + limit) time.
+     * @param from The smallest name to retrieve, or {@code null} to start from the first name.
+     * @param to The name right after the last one to retrieve, or {@code null} to go up to the last name.
+     * @param limit The maximum number of names to retrieve.
+     * @return A new {@link List} of at most limit names, in lexicographic order.
+     * @throws IllegalArgumentException if limit is negative, or if from comes after to.
+     */
+    public List<String> getNamesInRange(String from, String to, int limit) {
+        NavigableSet<String> range = sortedNames();
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+        if(limit < 0 || (from != null && to != null && from.compareTo(to) > 0))
+            throw new IllegalArgumentException("Provided: from=" + from + ", to=" + to + " and limit=" + limit);
+        if (from != null)
+            range = range.tailSet(from, true);
+        if (to != null)
+            range = range.headSet(to, false);
+        for (String name : range) {
+            if (names.size() == limit)
+                break;
+            names.add(name);
+        }
+        return names;
+    }
+
+    private NavigableSet<String> sortedNames() {
+        if (sortedNames == null) {
+            sortedNames = new TreeSet<>();
+            namesToNumbers.forEach((name, number) -> sortedNames.add(name));
+        }
+        return sortedNames;
+    }
+
+    /** Writes a snapshot of this {@link Phonebook} to a file, which {@link #open(Path)} can map back into memory.
+     * The file holds a header followed by a {@link MappedHashTable} image of each internal hash table, and it is
+     * replaced in a single step, so that a crash in the middle of this method leaves any previous snapshot intact.
+     * @param file The file to (over)write.
+     * @throws IOException if the file cannot be written.
+     * @see MappedHashTable#toImage(HashTable)
+     */
+    public void snapshot(Path file) throws IOException {
+        ByteBuffer names = MappedHashTable.toImage(namesToNumbers);
+        ByteBuffer numbers = MappedHashTable.toImage(numbersToNames);
+        ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES);
+        header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(names.remaining()).putInt(numbers.remaining()).flip();
+        MappedHashTable.writeAtomically(file, header, names, numbers);
+    }
+
+    /** Opens a snapshot written by {@link #snapshot(Path)}. The file is mapped into memory and searched in place,
+     * so this method returns in constant time no matter how many entries the snapshot holds. The returned
+     * {@link Phonebook} is <b>read-only</b>: {@link #addEntry(String, String)} and {@link #deleteEntry(String, String)}
+     * throw an {@link UnsupportedOperationException}.
+     * @param file A file written by {@link #snapshot(Path)}.
+     * @return A read-only {@link Phonebook} backed by the file.
+     * @throws IOException if the file cannot be read, or is not a valid snapshot.
+     * @see MappedHashTable
+     */
+    public static Phonebook open(Path file) throws IOException {
+        ByteBuffer snapshot;
+        int namesBytes;
+        int numbersBytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (snapshot.capacity() < SNAPSHOT_HEADER_BYTES || snapshot.getInt(0) != SNAPSHOT_MAGIC
+                || snapshot.getInt(4) != SNAPSHOT_VERSION)
+            throw new IOException("Not a phonebook snapshot: " + file + ".");
+        namesBytes = snapshot.getInt(8);
+        numbersBytes = snapshot.getInt(12);
+        if (namesBytes < 0 || numbersBytes < 0 || (long) SNAPSHOT_HEADER_BYTES + namesBytes + numbersBytes != snapshot.capacity())
+            throw new IOException("Truncated phonebook snapshot: " + file + ".");
+        return new Phonebook(new MappedHashTable(snapshot.slice(SNAPSHOT_HEADER_BYTES, namesBytes)),
+                new MappedHashTable(snapshot.slice(SNAPSHOT_HEADER_BYTES + namesBytes, numbersBytes)));
+    }
+
+    /** Returns a read-only copy of this {@link Phonebook}, in which both directions are
+     * {@link PerfectHashTable}s: every lookup makes exactly one probe, and the records are stored in dense arrays
+     * with no empty cells. The two tables are built at the same time, each of them in parallel too. Later changes to
+     * this {@link Phonebook} are not reflected in the copy, whose {@link #addEntry(String, String)} and
+     * {@link #deleteEntry(String, String)} throw an {@link UnsupportedOperationException}.
+     * @return A frozen copy of this {@link Phonebook}.
+     * @see PerfectHashTable#of(HashTable)
+     */
+    public Phonebook freeze() {
+        FutureTask<PerfectHashTable> reverse = new FutureTask<>(() -> PerfectHashTable.of(numbersToNames));
+        new Thread(reverse, "Phonebook.freeze").start();
+        PerfectHashTable names = PerfectHashTable.of(namesToNumbers);
+        try {
+            return new Phonebook(names, reverse.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Freezing the phone numbers to names table failed.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while freezing the phone numbers to names table.", e);
+        }
+    }
+
+    /** Passes every &lt; owner, phone number &gt; tuple of this {@link Phonebook} to the given action, in no
+     * particular order.
+     * @param action Receives the name and the number of every entry.
+     * @see HashTable#forEach(BiConsumer)
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        namesToNumbers.forEach(action);
     }
 
     /** Returns the number of entries in the phonebook.
@@ -5,10 +5,21 @@ import org.junit.Before;
 import org.junit.Test;
 import phonebook.hashes.*;
 import phonebook.utils.NoMorePrimesException;
+import phonebook.utils.Probes;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.*;
 import static phonebook.hashes.CollisionResolver.*;
@@ -29,7 +40,9 @@ import static phonebook.hashes.CollisionResolver.*;
 public class StudentTests {
 
     private Phonebook pb;
-    private CollisionResolver[] resolvers = {SEPARATE_CHAINING, LINEAR_PROBING, ORDERED_LINEAR_PROBING, QUADRATIC_PROBING};
+    private CollisionResolver[] resolvers = {SEPARATE_CHAINING, LINEAR_PROBING, ORDERED_LINEAR_PROBING, QUADRATIC_PROBING,
+            COMPACT_LINEAR_PROBING, ROBIN_HOOD, CUCKOO, INCREMENTAL_LINEAR_PROBING, POOLED_SEPARATE_CHAINING,
+            SWISS_TABLE, OFF_HEAP};
     private HashMap<String, String> testingPhoneBook;
     private static final long SEED = 47;
     private static final Random RNG = new Random(SEED);
@@ -197,6 +210,124 @@ public class StudentTests {
     }
 
 
+    @Test
+    public void testSCLoadFactorResizing() {
+        SeparateChainingHashTable sc = new SeparateChainingHashTable();
+        for (int i = 0; i < 7; i++) {
+            sc.put("Person " + i, "301-405-" + i);
+        }
+        assertEquals("7 entries in 7 buckets should not trigger an enlargement.", 7, sc.capacity());
+        sc.put("Person 7", "301-405-7");
+        assertEquals("An average chain length over 1 should enlarge the table.", 13, sc.capacity());
+
+        // Alternating around the threshold we just crossed should not resize back and forth.
+        for (int i = 0; i < 20; i++) {
+            sc.remove("Person 7");
+            assertEquals(13, sc.capacity());
+            sc.put("Person 7", "301-405-7");
+            assertEquals(13, sc.capacity());
+        }
+
+        for (int i = 8; i < 14; i++) {
+            sc.put("Person " + i, "301-405-" + i);
+        }
+        assertEquals(23, sc.capacity());
+        for (int i = 0; i < 14; i++) {
+            assertEquals("Entries should be found in their bucket after resizings.", "301-405-" + i,
+                    sc.get("Person " + i).getValue());
+        }
+        for (int i = 13; i >= 5; i--) {
+            sc.remove("Person " + i);
+        }
+        assertEquals("5 entries in 23 buckets should shrink the table.", 13, sc.capacity());
+        for (int i = 4; i >= 0; i--) {
+            sc.remove("Person " + i);
+        }
+        assertEquals("The table should never shrink below its initial capacity.", 7, sc.capacity());
+        assertEquals(0, sc.size());
+
+        SeparateChainingHashTable manual = new SeparateChainingHashTable(Double.POSITIVE_INFINITY, 0);
+        for (int i = 0; i < 100; i++) {
+            manual.put("Person " + i, "301-405-" + i);
+        }
+        assertEquals("Without limits, the table should only resize on demand.", 7, manual.capacity());
+
+        try {
+            new SeparateChainingHashTable(1.0, 0.5);
+            fail("A minimum load factor over a quarter of the maximum should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testPooledSCProbes() {
+        PooledSeparateChainingHashTable psc = new PooledSeparateChainingHashTable();
+
+        // Same chains as in testSCProbes(): Jessie ends up behind Arnold, and Jerry would end up behind Tiffany.
+        assertEquals(1, psc.put("Arnold", "894-59-0011").getProbes());
+        assertEquals(1, psc.put("Tiffany", "894-59-0011").getProbes());
+        assertEquals(2, psc.put("Jessie", "705-12-7500").getProbes());
+        assertEquals(1, psc.put("Mary", "888-1212-3340").getProbes());
+
+        assertEquals(1, psc.get("Arnold").getProbes());
+        assertEquals("894-59-0011", psc.get("Arnold").getValue());
+        assertEquals(2, psc.get("Jessie").getProbes());
+        assertEquals(2, psc.get("Jerry").getProbes());
+
+        // Updates don't add a second entry.
+        assertEquals(2, psc.put("Jessie", "705-12-7501").getProbes());
+        assertEquals(4, psc.size());
+        assertEquals("705-12-7501", psc.get("Jessie").getValue());
+
+        // Jessie moves to the front of the chain once Arnold is gone, and Arnold's cell is reused for Jerry.
+        assertEquals("894-59-0011", psc.remove("Arnold").getValue());
+        assertEquals(1, psc.get("Jessie").getProbes());
+        assertEquals(2, psc.put("Jerry", "111-11-1111").getProbes());
+        assertEquals(4, psc.size());
+
+        psc.enlarge();
+        assertEquals(13, psc.capacity());
+        for (String key : new String[]{"Tiffany", "Jessie", "Mary", "Jerry"}) {
+            assertTrue(psc.containsKey(key));
+        }
+        assertTrue(psc.containsValue("111-11-1111"));
+        assertFalse(psc.containsKey("Arnold"));
+        psc.shrink();
+        assertEquals(7, psc.capacity());
+        assertEquals("888-1212-3340", psc.get("Mary").getValue());
+    }
+
+    @Test
+    public void testPooledSCResizes() {
+        PooledSeparateChainingHashTable psc = new PooledSeparateChainingHashTable();
+        int probes = 0;
+        for (int i = 0; i < 1000; i++) {
+            psc.put("301-405-" + i, "Person " + i);
+            assertTrue("Load factor above maximum: " + psc.size() + " / " + psc.capacity(),
+                    psc.size() <= SeparateChainingHashTable.DEFAULT_MAX_LOAD_FACTOR * psc.capacity());
+        }
+        for (int i = 0; i < 1000; i++) {
+            probes += psc.get("301-405-" + i).getProbes();
+        }
+        assertTrue("Average successful search took " + probes / 1000.0 + " probes.", probes < 2 * 1000);
+        for (int i = 0; i < 990; i++) {
+            psc.remove("301-405-" + i);
+        }
+        assertTrue("Table did not shrink: capacity " + psc.capacity() + ".", psc.capacity() < 100);
+        for (int i = 990; i < 1000; i++) {
+            assertEquals("Person " + i, psc.get("301-405-" + i).getValue());
+        }
+
+        psc = new PooledSeparateChainingHashTable();
+        psc.ensureCapacity(10000);
+        int capacity = psc.capacity();
+        assertTrue(capacity >= 10000);
+        for (int i = 0; i < 10000; i++) {
+            psc.put("301-405-" + i, "Person " + i);
+        }
+        assertEquals("ensureCapacity() should leave no resizing to put().", capacity, psc.capacity());
+    }
+
     @Test
     public void testLProbes() {
 
@@ -373,4 +504,1213 @@ public class StudentTests {
         assertEquals("After additions and deletions, and additions again, resize should be triggered and the capacity should be 23, but get " + lp.capacity() + ".", 23, lp.capacity());
 
     }
+
+    // Every put() decides whether to resize from a running count of occupied cells; make sure that count
+    // stays in step with the table through insertions, soft / hard deletions and several resizings.
+    @Test
+    public void testOccupancyTrackedAcrossResizes() {
+        OpenAddressingHashTable[] tables = {new LinearProbingHashTable(true), new LinearProbingHashTable(false),
+                new OrderedLinearProbingHashTable(true), new QuadraticProbingHashTable(true)};
+        for (OpenAddressingHashTable table : tables) {
+            for (int i = 0; i < 1500; i++) {
+                table.put("key" + i, "value" + i);
+            }
+            assertEquals("Table " + table.getClass().getSimpleName() + " lost insertions.", 1500, table.size());
+            assertTrue("Table " + table.getClass().getSimpleName() + " should never be more than half full.",
+                    2 * table.size() <= table.capacity() + 1);
+            for (int i = 0; i < 1500; i += 2) {
+                table.remove("key" + i);
+            }
+            for (int i = 0; i < 1500; i++) {
+                assertEquals((i % 2 == 0) ? null : "value" + i, table.get("key" + i).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testCompactLProbes() {
+
+        CompactLinearProbingHashTable clp = new CompactLinearProbingHashTable(false);
+
+        // Same hash function and probing sequence as LinearProbingHashTable, so the same probe counts.
+        assertEquals(1, clp.put("Arnold", "894-59-0011").getProbes());
+        assertEquals(1, clp.put("Tiffany", "894-59-0011").getProbes());
+        assertEquals(2, clp.put("Jessie", "705-12-7500").getProbes());
+        assertEquals(1, clp.put("Mary", "888-1212-3340").getProbes());
+
+        assertEquals(1, clp.get("Arnold").getProbes());
+        assertEquals("894-59-0011", clp.get("Arnold").getValue());
+        assertEquals(1, clp.get("Tiffany").getProbes());
+        assertEquals(2, clp.get("Jessie").getProbes());
+        assertEquals(1, clp.get("Mary").getProbes());
+        assertEquals(2, clp.get("Jerry").getProbes());
+        assertNull(clp.remove("Jerry").getValue());
+
+        // Updates happen in place, but the table was already half full, so this put() resizes first.
+        clp.put("Mary", "000-0000-0000");
+        assertEquals(4, clp.size());
+        assertEquals(13, clp.capacity());
+        assertEquals("000-0000-0000", clp.get("Mary").getValue());
+
+        assertEquals("705-12-7500", clp.remove("Jessie").getValue());
+        assertFalse(clp.containsKey("Jessie"));
+        assertTrue(clp.containsKey("Arnold") && clp.containsKey("Tiffany") && clp.containsKey("Mary"));
+        assertEquals(3, clp.size());
+    }
+
+    @Test
+    public void testPowerOfTwoCapacityPolicy() {
+        OpenAddressingHashTable[] tables = {new LinearProbingHashTable(true, CapacityPolicy.POWER_OF_TWO),
+                new OrderedLinearProbingHashTable(true, CapacityPolicy.POWER_OF_TWO),
+                new QuadraticProbingHashTable(true, CapacityPolicy.POWER_OF_TWO)};
+        for (OpenAddressingHashTable table : tables) {
+            String name = table.getClass().getSimpleName();
+            assertEquals(name + " should start with a capacity of 8.", 8, table.capacity());
+            // Well past what the list of primes would allow us to grow to.
+            for (int i = 0; i < 20000; i++) {
+                table.put("555-" + i, "Person " + i);
+            }
+            assertEquals(name + " lost insertions.", 20000, table.size());
+            assertEquals(name + " should have doubled its way up to 65536 cells.", 65536, table.capacity());
+            for (int i = 0; i < 20000; i += 3) {
+                table.remove("555-" + i);
+            }
+            for (int i = 0; i < 20000; i++) {
+                assertEquals(name + " returned the wrong value for key 555-" + i + ".",
+                        (i % 3 == 0) ? null : "Person " + i, table.get("555-" + i).getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testRobinHoodProbes() {
+
+        RobinHoodHashTable rh = new RobinHoodHashTable();
+
+        // "Arnold" and "Jessie" both hash to cell 1. When Jessie meets Arnold, neither is further from home
+        // than the other, so Jessie probes on to cell 2, exactly like in Linear Probing.
+        assertEquals(1, rh.put("Arnold", "894-59-0011").getProbes());
+        assertEquals(1, rh.put("Tiffany", "894-59-0011").getProbes());
+        assertEquals(2, rh.put("Jessie", "705-12-7500").getProbes());
+        assertEquals(1, rh.put("Mary", "888-1212-3340").getProbes());
+
+        assertEquals(1, rh.get("Arnold").getProbes());
+        assertEquals("894-59-0011", rh.get("Arnold").getValue());
+        assertEquals(1, rh.get("Tiffany").getProbes());
+        assertEquals(2, rh.get("Jessie").getProbes());
+        assertEquals(1, rh.get("Mary").getProbes());
+
+        // Search fail
+        assertEquals(2, rh.get("Jerry").getProbes());
+        assertNull(rh.remove("Jerry").getValue());
+
+        assertEquals("894-59-0011", rh.remove("Arnold").getValue());
+        // Jessie was shifted back into its home cell.
+        assertEquals(1, rh.get("Jessie").getProbes());
+        assertEquals(3, rh.size());
+
+        // ensureCapacity() moves the cached hashes along with the entries.
+        rh.ensureCapacity(1000);
+        assertEquals("705-12-7500", rh.get("Jessie").getValue());
+        assertEquals("705-12-7500", rh.remove("Jessie").getValue());
+        assertEquals("888-1212-3340", rh.get("Mary").getValue());
+        assertEquals(2, rh.size());
+    }
+
+    @Test
+    public void testCuckooProbesAreBounded() {
+        CuckooHashTable ck = new CuckooHashTable();
+        int maxProbes = 2 + CuckooHashTable.STASH_SIZE;
+        for (int i = 0; i < 3000; i++) {
+            ck.put("301-405-" + i, "Person " + i);
+        }
+        assertEquals(3000, ck.size());
+        assertTrue("Cuckoo hash should never be more than 40% full.", 5 * ck.size() <= 2 * ck.capacity());
+        for (int i = 0; i < 3000; i++) {
+            Probes hit = ck.get("301-405-" + i);
+            assertEquals("Person " + i, hit.getValue());
+            assertTrue("Successful search took " + hit.getProbes() + " probes.", hit.getProbes() <= maxProbes);
+            Probes miss = ck.get("240-000-" + i);
+            assertNull(miss.getValue());
+            assertTrue("Unsuccessful search took " + miss.getProbes() + " probes.", miss.getProbes() <= maxProbes);
+        }
+        for (int i = 0; i < 3000; i += 2) {
+            assertEquals("Person " + i, ck.remove("301-405-" + i).getValue());
+        }
+        assertEquals(1500, ck.size());
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(i % 2 == 1, ck.containsKey("301-405-" + i));
+        }
+    }
+
+    // The two cells of key under the seeds that a new CuckooHashTable starts with, mirroring its private index().
+    private static int cuckooCell(String key, int seed, int length) {
+        int h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (h & 0x7fffffff) % length;
+    }
+
+    // More keys than two cells and the stash can hold all collide in both tables, so that the last one has to
+    // rebuild the table around it.
+    @Test
+    public void testCuckooStashOverflow() {
+        CuckooHashTable ck = new CuckooHashTable();
+        ck.ensureCapacity(3 * CuckooHashTable.STASH_SIZE);
+        int length = ck.capacity() / 2;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; keys.size() < CuckooHashTable.STASH_SIZE + 3; i++) {
+            String key = "301-405-" + i;
+            if (cuckooCell(key, 0x9E3779B9, length) == cuckooCell("301-405-0", 0x9E3779B9, length)
+                    && cuckooCell(key, 0x7F4A7C15, length) == cuckooCell("301-405-0", 0x7F4A7C15, length)) {
+                keys.add(key);
+            }
+        }
+        for (String key : keys) {
+            ck.put(key, "Person " + key);
+        }
+        assertEquals(keys.size(), ck.size());
+        for (String key : keys) {
+            assertEquals("Person " + key, ck.get(key).getValue());
+        }
+    }
+
+    // Keys whose String.hashCode() is the same ("Aa" and "BB" and all their concatenations) should still be spread
+    // over the table, since the two hash functions are computed over the characters of the key.
+    @Test
+    public void testCuckooEqualHashCodes() {
+        CuckooHashTable ck = new CuckooHashTable();
+        String[] blocks = {"Aa", "BB"};
+        for (int i = 0; i < 64; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int bit = 0; bit < 6; bit++) {
+                key.append(blocks[(i >> bit) & 1]);
+            }
+            ck.put(key.toString(), Integer.toString(i));
+        }
+        assertEquals(64, ck.size());
+        assertEquals("5", ck.get("BBAaBBAaAaAa").getValue());
+    }
+
+    // Many writers update overlapping names and numbers while readers look them up. At every point a reader can see,
+    // and at the end, both directions of the phonebook must describe the same one-to-one mapping.
+    @Test
+    public void concurrentPhonebookStressTest() throws InterruptedException {
+        final int writers = 4, readers = 4, ops = 20000, people = 200;
+        for (CollisionResolver resolver : new CollisionResolver[]{SEPARATE_CHAINING, ROBIN_HOOD, CUCKOO, SWISS_TABLE,
+                POOLED_SEPARATE_CHAINING}) {
+            ConcurrentPhonebook cpb = new ConcurrentPhonebook(resolver, resolver, 4);
+            java.util.concurrent.atomic.AtomicReference<Throwable> error = new java.util.concurrent.atomic.AtomicReference<>();
+            Thread[] threads = new Thread[writers + readers];
+            for (int t = 0; t < threads.length; t++) {
+                final Random rng = new Random(SEED + t);
+                final boolean writer = t < writers;
+                threads[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < ops; i++) {
+                            String name = "Person " + rng.nextInt(people);
+                            String number = "301-" + rng.nextInt(people);
+                            if (writer && rng.nextInt(4) == 0) {
+                                cpb.deleteEntry(name, number);
+                            } else if (writer) {
+                                cpb.addEntry(name, number);
+                            } else {
+                                String found = cpb.getNumberOf(name);
+                                assertTrue("Unknown number " + found + ".", found == null || found.startsWith("301-"));
+                                found = cpb.getOwnerOf(number);
+                                assertTrue("Unknown owner " + found + ".", found == null || found.startsWith("Person "));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (error.get() != null) {
+                fail("Collision resolver " + resolver + ": " + errorData(error.get()));
+            }
+            int names = 0, numbers = 0;
+            for (int i = 0; i < people; i++) {
+                String number = cpb.getNumberOf("Person " + i);
+                if (number != null) {
+                    names++;
+                    assertEquals("Collision resolver " + resolver + ".", "Person " + i, cpb.getOwnerOf(number));
+                }
+                String owner = cpb.getOwnerOf("301-" + i);
+                if (owner != null) {
+                    numbers++;
+                    assertEquals("Collision resolver " + resolver + ".", "301-" + i, cpb.getNumberOf(owner));
+                }
+            }
+            assertEquals(names, numbers);
+            assertEquals(names, cpb.size());
+        }
+    }
+
+    // No single insertion should pay for re-inserting the whole table, unlike in LinearProbingHashTable.
+    @Test
+    public void testIncrementalResizeSpreadsProbes() {
+        LinearProbingHashTable lp = new LinearProbingHashTable(false);
+        IncrementalLinearProbingHashTable ilp = new IncrementalLinearProbingHashTable(false);
+        int lpMax = 0, ilpMax = 0;
+        for (int i = 0; i < 2000; i++) {
+            lpMax = Math.max(lpMax, lp.put("301-405-" + i, "Person " + i).getProbes());
+            ilpMax = Math.max(ilpMax, ilp.put("301-405-" + i, "Person " + i).getProbes());
+            if (i == 3) {
+                assertTrue("Four insertions into a table of 7 cells should have started a resizing.", ilp.isResizing());
+                assertEquals("Person 2", ilp.get("301-405-2").getValue());
+            }
+        }
+                assertTrue("Linear Probing pays for its resizings in a single insertion: " + lpMax + " probes.", lpMax > 1000);
+        assertTrue("Incremental Linear Probing took " + ilpMax + " probes for an insertion, Linear Probing " + lpMax + ".",
+                10 * ilpMax < lpMax);
+        assertEquals(2000, ilp.size());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals("Person " + i, ilp.get("301-405-" + i).getValue());
+        }
+    }
+
+    // Applies random puts and removes of the keys "Person 0" to "Person " + (keys - 1) to table and to a HashMap, putsPerRemove puts for
+    // every remove on average, and checks that the two agree after every operation and on every key at the end. Tables
+    // whose put() can add a second entry for an existing key are only given absent keys, if updates is false.
+    private Map<String, String> assertMatchesHashMap(String message, HashTable table, int operations, int keys,
+                                                     int putsPerRemove, boolean updates) {
+        return assertMatchesHashMap(message, table, operations, keys, putsPerRemove, updates, (expected, i) -> { });
+    }
+
+    // Same, but also runs afterEach with the expected entries and the index of the operation after every operation,
+    // e.g. to resize the table in between. afterEach must keep the expected entries in line with the table.
+    private Map<String, String> assertMatchesHashMap(String message, HashTable table, int operations, int keys,
+                                                     int putsPerRemove, boolean updates,
+                                                     ObjIntConsumer<Map<String, String>> afterEach) {
+        Map<String, String> expected = new HashMap<>();
+        for (int i = 0; i < operations; i++) {
+            String key = "Person " + RNG.nextInt(keys);
+            if (RNG.nextInt(putsPerRemove + 1) > 0) {
+                if (updates || !expected.containsKey(key)) {
+                    String value = "301-405-" + RNG.nextInt(10 * keys);
+                    table.put(key, value);
+                    expected.put(key, value);
+                }
+            } else {
+                assertEquals(message + " Key: " + key + ".", expected.remove(key), table.remove(key).getValue());
+            }
+            afterEach.accept(expected, i);
+            assertEquals(message, expected.size(), table.size());
+            assertEquals(message + " Key: " + key + ".", expected.get(key), table.lookup(key));
+        }
+        for (int i = 0; i < keys; i++) {
+            String key = "Person " + i;
+            assertEquals(message + " Key: " + key + ".", expected.get(key), table.get(key).getValue());
+            assertEquals(message + " Key: " + key + ".", expected.containsKey(key), table.containsKey(key));
+        }
+        Map<String, String> visited = new HashMap<>();
+        table.forEach(visited::put);
+        assertEquals(message, expected, visited);
+        return expected;
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Map<String, Supplier<HashTable>> tables = new LinkedHashMap<>();
+        tables.put("CompactLinearProbingHashTable, soft deletion", () -> new CompactLinearProbingHashTable(true));
+        tables.put("CompactLinearProbingHashTable, hard deletion", () -> new CompactLinearProbingHashTable(false));
+        tables.put("RobinHoodHashTable", RobinHoodHashTable::new);
+        tables.put("CuckooHashTable", CuckooHashTable::new);
+        tables.put("IncrementalLinearProbingHashTable, soft deletion", () -> new IncrementalLinearProbingHashTable(true));
+        tables.put("IncrementalLinearProbingHashTable, hard deletion", () -> new IncrementalLinearProbingHashTable(false));
+        tables.put("SwissHashTable", SwissHashTable::new);
+        for (Map.Entry<String, Supplier<HashTable>> table : tables.entrySet()) {
+            assertMatchesHashMap(table.getKey(), table.getValue().get(), 5 * NUMS, 5 * UPPER_BOUND, 2, true);
+        }
+
+        // Explicit enlargements in between re-link the chains of the pool.
+        PooledSeparateChainingHashTable psc = new PooledSeparateChainingHashTable();
+        assertMatchesHashMap("PooledSeparateChainingHashTable", psc, 5 * NUMS, 5 * UPPER_BOUND, 2, true, (expected, i) -> {
+            if (i % 100 == 0) {
+                psc.enlarge();
+            }
+        });
+    }
+
+    @Test
+    public void testBulkLoad() {
+        final int entries = 1500;
+        String[] names = new String[entries], numbers = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            names[i] = "Person " + i;
+            numbers[i] = "301-405-" + i;
+        }
+        for (CollisionResolver resolver : resolvers) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                pb = new Phonebook(resolver, resolver);
+                pb.addEntry("Arnold", "894-59-0011");
+                pb.addEntries(names, numbers, parallel);
+                assertEquals(format("Bulk loaded phonebook has the wrong size. ", resolver, resolver), entries + 1, pb.size());
+                for (int i = 0; i < entries; i++) {
+                    assertEquals(format("", resolver, resolver), numbers[i], pb.getNumberOf(names[i]));
+                    assertEquals(format("", resolver, resolver), names[i], pb.getOwnerOf(numbers[i]));
+                }
+                assertEquals("894-59-0011", pb.getNumberOf("Arnold"));
+            }
+        }
+        try {
+            pb.addEntries(new String[]{"Jessie", null}, new String[]{"705-12-7500", "888-1212-3340"}, false);
+            fail("addEntries() should not accept null names.");
+        } catch (IllegalArgumentException ignored) {
+            assertNull("A rejected bulk load should not add anything.", pb.getNumberOf("Jessie"));
+        }
+    }
+
+    // Growing in a single step should land on the same capacity as growing one insertion at a time,
+    // without the probes paid by every intermediate resizing.
+    @Test
+    public void testPutAllResizesOnce() {
+        String[] keys = new String[1000], values = new String[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "301-405-" + i;
+            values[i] = "Person " + i;
+        }
+        LinearProbingHashTable one = new LinearProbingHashTable(false), all = new LinearProbingHashTable(false);
+        int probes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            probes += one.put(keys[i], values[i]).getProbes();
+        }
+        assertTrue(all.putAll(keys, values) < probes);
+        assertEquals(one.capacity(), all.capacity());
+        assertEquals(keys.length, all.size());
+
+        int[] enlargements = {0};
+        SeparateChainingHashTable sc = new SeparateChainingHashTable() {
+            @Override
+            public void enlarge() {
+                enlargements[0]++;
+                super.enlarge();
+            }
+        };
+        sc.putAll(keys, values);
+        assertEquals("putAll() should leave no resizing to put().", 0, enlargements[0]);
+        assertTrue(sc.size() <= SeparateChainingHashTable.DEFAULT_MAX_LOAD_FACTOR * sc.capacity());
+        assertEquals(keys.length, sc.size());
+        assertEquals("Person 999", sc.get("301-405-999").getValue());
+    }
+
+    @Test
+    public void testMappedSnapshot() throws IOException {
+        Path file = Files.createTempFile("phonebook", ".snapshot");
+        try {
+            for (CollisionResolver resolver : resolvers) {
+                pb = new Phonebook(resolver, resolver);
+                for (int i = 0; i < 500; i++) {
+                    pb.addEntry("Person " + i, "301-405-" + i);
+                }
+                pb.addEntry("Zo\u00eb \u0395\u03bb\u03ad\u03bd\u03b7", "894-59-0011");
+                pb.snapshot(file);
+
+                Phonebook mapped = Phonebook.open(file);
+                assertEquals(format("", resolver, resolver), pb.size(), mapped.size());
+                for (int i = 0; i < 500; i++) {
+                    assertEquals(format("", resolver, resolver), "301-405-" + i, mapped.getNumberOf("Person " + i));
+                    assertEquals(format("", resolver, resolver), "Person " + i, mapped.getOwnerOf("301-405-" + i));
+                }
+                assertEquals("894-59-0011", mapped.getNumberOf("Zo\u00eb \u0395\u03bb\u03ad\u03bd\u03b7"));
+                assertEquals("Zo\u00eb \u0395\u03bb\u03ad\u03bd\u03b7", mapped.getOwnerOf("894-59-0011"));
+                assertNull(mapped.getNumberOf("Person 500"));
+                assertNull(mapped.getOwnerOf("301-405-500"));
+                try {
+                    mapped.addEntry("Jessie", "705-12-7500");
+                    fail("A phonebook opened from a snapshot should be read-only.");
+                } catch (UnsupportedOperationException ignored) {
+                }
+            }
+
+            // The image holds what forEach() visits, even where it disagrees with size() after hard deletes.
+            pb = new Phonebook(ORDERED_LINEAR_PROBING, ORDERED_LINEAR_PROBING);
+            for (int i = 0; i < 50; i++) {
+                pb.addEntry("Person " + i, "301-405-" + i);
+            }
+            for (int i = 0; i < 50; i += 2) {
+                pb.deleteEntry("Person " + i, "301-405-" + i);
+            }
+            pb.snapshot(file);
+            Phonebook mapped = Phonebook.open(file);
+            pb.forEach((name, number) -> assertEquals(number, mapped.getNumberOf(name)));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMappedHashTableImage() throws IOException {
+        HashTable lp = new LinearProbingHashTable(false);
+        for (Map.Entry<String, String> entry : testingPhoneBook.entrySet()) {
+            lp.put(entry.getKey(), entry.getValue());
+        }
+        MappedHashTable mapped = new MappedHashTable(MappedHashTable.toImage(lp));
+        assertEquals(4, mapped.size());
+        assertEquals(8, mapped.capacity());
+        for (Map.Entry<String, String> entry : testingPhoneBook.entrySet()) {
+            assertTrue(mapped.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), mapped.get(entry.getKey()).getValue());
+            assertTrue(mapped.containsValue(entry.getValue()));
+        }
+        assertNull(mapped.get("Jerry").getValue());
+        assertTrue(mapped.get("Jerry").getProbes() >= 1);
+        assertFalse(mapped.containsValue("111-11-1111"));
+        HashMap<String, String> visited = new HashMap<>();
+        mapped.forEach(visited::put);
+        assertEquals(testingPhoneBook, visited);
+
+        try {
+            new MappedHashTable(java.nio.ByteBuffer.wrap(new byte[64]));
+            fail("An empty buffer is not an image.");
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Deletes a directory of a DurablePhonebook, along with its files.
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testDurablePhonebookRecovery() throws IOException {
+        Path directory = Files.createTempDirectory("phonebook");
+        try {
+            // Never closed, as if the process had crashed right after the last mutation.
+            DurablePhonebook crashed = new DurablePhonebook(directory, CollisionResolver.ROBIN_HOOD,
+                    CollisionResolver.POOLED_SEPARATE_CHAINING);
+            crashed.addEntry("Arnold", "894-59-0011");
+            crashed.addEntry("Tiffany", "674-25-9845");
+            crashed.addEntry("Jessie", "705-12-7500");
+            crashed.addEntry("DeAndre", "319-45-2890");
+            crashed.deleteEntry("Arnold", "894-59-0011");
+            crashed.checkpoint();
+            crashed.addEntry("Yosefe", "240-55-5555");
+            crashed.deleteEntry("Jessie", "705-12-7500");
+
+            try (DurablePhonebook recovered = new DurablePhonebook(directory, CollisionResolver.CUCKOO,
+                    CollisionResolver.COMPACT_LINEAR_PROBING)) {
+                assertEquals(3, recovered.size());
+                assertNull(recovered.getNumberOf("Arnold"));
+                assertNull(recovered.getOwnerOf("705-12-7500"));
+                assertEquals("240-55-5555", recovered.getNumberOf("Yosefe"));
+                assertEquals("Tiffany", recovered.getOwnerOf("674-25-9845"));
+                assertEquals("DeAndre", recovered.getOwnerOf("319-45-2890"));
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testDurablePhonebookTornLog() throws IOException {
+        Path directory = Files.createTempDirectory("phonebook");
+        try {
+            try (DurablePhonebook durable = new DurablePhonebook(directory, CollisionResolver.LINEAR_PROBING,
+                    CollisionResolver.LINEAR_PROBING, 10, DurablePhonebook.DEFAULT_CHECKPOINT_BYTES)) {
+                durable.addEntry("Arnold", "894-59-0011");
+                durable.addEntry("Tiffany", "674-25-9845");
+            }
+            Path log = directory.resolve("phonebook-0.log");
+            long intact = Files.size(log);
+            // The first few bytes of a record whose write was cut short.
+            Files.write(log, new byte[] {0, 0, 0, 40, 1, 2}, java.nio.file.StandardOpenOption.APPEND);
+
+            try (DurablePhonebook durable = new DurablePhonebook(directory, CollisionResolver.LINEAR_PROBING,
+                    CollisionResolver.LINEAR_PROBING)) {
+                assertEquals(intact, Files.size(log));
+                assertEquals(2, durable.size());
+                assertEquals("Arnold", durable.getOwnerOf("894-59-0011"));
+                durable.addEntry("Jessie", "705-12-7500");
+            }
+            assertEquals(3, WriteAheadLog.replay(log, (operation, name, number) -> assertEquals(WriteAheadLog.ADD, operation)));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    // Once a write or a force has failed, every later call reports that failure, rather than risking a later force
+    // that succeeds without the records the failed one could not write.
+    @Test
+    public void testWriteAheadLogFailureIsSticky() throws IOException {
+        Path directory = Files.createTempDirectory("phonebook");
+        Path file = directory.resolve("phonebook-0.log");
+        WriteAheadLog log = new WriteAheadLog(file, 0);
+        IOException first = null;
+        try {
+            log.append(WriteAheadLog.ADD, "Arnold", "894-59-0011");
+            Thread.currentThread().interrupt();   // Closes the channel in the middle of the next write.
+            try {
+                log.sync();
+                fail("sync() should have been interrupted.");
+            } catch (IOException e) {
+                first = e;
+            } finally {
+                Thread.interrupted();
+            }
+            try {
+                log.append(WriteAheadLog.ADD, "Tiffany", "674-25-9845");
+                fail("append() should report the earlier failure.");
+            } catch (java.io.UncheckedIOException e) {
+                assertSame(first, e.getCause().getCause());
+            }
+            try {
+                log.awaitDurable(1);
+                fail("awaitDurable() should report the earlier failure.");
+            } catch (java.io.UncheckedIOException e) {
+                assertSame(first, e.getCause().getCause());
+            }
+            try {
+                log.sync();
+                fail("sync() should report the earlier failure.");
+            } catch (IOException e) {
+                assertSame(first, e.getCause());
+            }
+            try {
+                log.close();
+                fail("close() should report the earlier failure.");
+            } catch (IOException e) {
+                assertSame(first, e.getCause());
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testDurablePhonebookCompaction() throws IOException {
+        Path directory = Files.createTempDirectory("phonebook");
+        try {
+            try (DurablePhonebook durable = new DurablePhonebook(directory, CollisionResolver.ROBIN_HOOD,
+                    CollisionResolver.CUCKOO, 0, 4096)) {
+                for (int i = 0; i < 1000; i++) {
+                    durable.addEntry("Person " + (i % 100), "301-405-" + (i % 100));
+                }
+                assertEquals(100, durable.size());
+            }
+            // Only the latest generation is kept, and its log is smaller than the checkpoint threshold.
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                assertEquals(2, files.count());
+            }
+            try (DurablePhonebook durable = new DurablePhonebook(directory, CollisionResolver.POOLED_SEPARATE_CHAINING,
+                    CollisionResolver.ROBIN_HOOD)) {
+                assertEquals(100, durable.size());
+                for (int i = 0; i < 100; i++) {
+                    assertEquals("301-405-" + i, durable.getNumberOf("Person " + i));
+                }
+            }
+
+            // Files of older generations that a crash left behind are deleted once, when the phonebook is opened.
+            Path stale = directory.resolve("phonebook-0.log");
+            Files.write(stale, new byte[0]);
+            try (DurablePhonebook durable = new DurablePhonebook(directory, CollisionResolver.ROBIN_HOOD,
+                    CollisionResolver.ROBIN_HOOD)) {
+                assertFalse(Files.exists(stale));
+                durable.checkpoint();
+                assertEquals(100, durable.size());
+            }
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                assertEquals(2, files.count());
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testInstrumentedHashTable() throws javax.management.JMException {
+        // "A", "B" and "C" have consecutive hash codes, so they form a single cluster of 3 cells, each in its home cell.
+        InstrumentedHashTable lp = new InstrumentedHashTable(new LinearProbingHashTable(true));
+        lp.put("A", "1");
+        lp.put("B", "2");
+        lp.put("C", "3");
+        assertEquals("2", lp.remove("B").getValue());
+        assertEquals("3", lp.get("C").getValue());
+        assertNull(lp.get("Z").getValue());
+
+        InstrumentedHashTable.Metrics metrics = lp.metrics();
+        assertEquals("LinearProbingHashTable", metrics.getImplementation());
+        assertEquals(2, metrics.getSize());
+        assertEquals(7, metrics.getCapacity());
+        assertEquals(1, metrics.getTombstones());
+        assertEquals(3, metrics.getMaxClusterLength());
+        assertEquals(6, metrics.getOperations());
+        assertEquals(0, metrics.getResizes());
+        assertEquals(3, lp.probes(InstrumentedHashTable.Operation.PUT).count());
+        assertEquals(1, lp.probes(InstrumentedHashTable.Operation.PUT).max());
+        assertEquals(2, lp.probes(InstrumentedHashTable.Operation.GET).count());
+
+        javax.management.ObjectName name = lp.register("testInstrumentedHashTable");
+        try {
+            javax.management.MBeanServer server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            assertEquals(3, server.getAttribute(name, "MaxClusterLength"));
+            assertEquals(1.0 / 7, (Double) server.getAttribute(name, "TombstoneRatio"), 1e-9);
+            for (int i = 0; i < 20; i++) {
+                lp.put("Person " + i, "301-405-" + i);
+            }
+            assertTrue((Long) server.getAttribute(name, "Resizes") > 0);
+            assertEquals(26L, server.getAttribute(name, "Operations"));
+            server.invoke(name, "resetStatistics", null, null);
+            assertEquals(0, lp.metrics().getOperations());
+            assertEquals(22, lp.metrics().getSize());
+        } finally {
+            lp.unregister();
+        }
+        assertFalse(java.lang.management.ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        InstrumentedHashTable sc = new InstrumentedHashTable(new SeparateChainingHashTable());
+        sc.put("A", "1");
+        assertEquals(0, sc.metrics().getMaxClusterLength());
+        assertEquals(0.0, sc.metrics().getTombstoneRatio(), 0);
+    }
+
+    @Test
+    public void testTombstoneCompaction() {
+        HashTable[] tables = {new LinearProbingHashTable(true), new QuadraticProbingHashTable(true),
+                new OrderedLinearProbingHashTable(true), new IncrementalLinearProbingHashTable(true),
+                new CompactLinearProbingHashTable(true)};
+        for (HashTable table : tables) {
+            InstrumentedHashTable instrumented = new InstrumentedHashTable(table);
+            String name = table.getClass().getSimpleName();
+            for (int i = 0; i < 40; i++) {
+                instrumented.put("Person " + i, "301-405-" + i);
+            }
+            int capacity = instrumented.capacity();
+            // A delete-heavy workload at a constant size: without compaction, tombstones would pile up until
+            // the next growth resizing.
+            for (int round = 0; round < 20; round++) {
+                for (int i = (round == 0) ? 1 : 0; i < 40; i += (round == 0) ? 2 : 4) {
+                    instrumented.remove("Person " + i);
+                    InstrumentedHashTable.Metrics metrics = instrumented.metrics();
+                    assertTrue(name + ": " + metrics, metrics.getTombstoneRatio() <= OpenAddressingHashTable.MAX_TOMBSTONE_RATIO);
+                }
+                for (int i = 0; round > 0 && i < 40; i += 4) {
+                    instrumented.put("Person " + i, "301-405-" + i);
+                }
+            }
+            assertEquals(name, 20, instrumented.size());
+            assertEquals(name + ": compaction should not have grown the table.", capacity, instrumented.capacity());
+            for (int i = 0; i < 40; i++) {
+                assertEquals(name, (i % 2 == 0) ? "301-405-" + i : null, instrumented.get("Person " + i).getValue());
+            }
+
+            instrumented.remove("Person 6");
+            assertTrue(name, instrumented.compact() > 0);
+            assertEquals(name, 0, instrumented.metrics().getTombstones());
+            assertEquals(name, 0, instrumented.compact());
+            assertEquals(name, 19, instrumented.size());
+            assertEquals(name, capacity, instrumented.capacity());
+            assertNull(name, instrumented.get("Person 6").getValue());
+            assertEquals(name, "301-405-8", instrumented.get("Person 8").getValue());
+        }
+    }
+
+    @Test
+    public void testPutReusesTombstones() {
+        // "A", "H", "O" and "V" all hash to cell 2 of 7.
+        LinearProbingHashTable lp = new LinearProbingHashTable(true);
+        lp.put("A", "1");
+        lp.put("H", "2");
+        lp.put("O", "3");
+        lp.remove("H");
+        assertEquals("\"V\" should take \"H\"'s place instead of going past \"O\".", 2, lp.put("V", "4").getProbes());
+        assertEquals(3, lp.size());
+        assertEquals("3", lp.get("O").getValue());
+        assertEquals("4", lp.get("V").getValue());
+        assertNull(lp.get("H").getValue());
+        assertFalse(lp.toString().contains("TOMBSTONE"));
+    }
+
+    @Test
+    public void testLookupMatchesGet() throws IOException {
+        ArrayList<HashTable> tables = new ArrayList<>();
+        for (CollisionResolver resolver : resolvers) {
+            tables.add(Phonebook.createTable(resolver));
+        }
+        tables.add(new LinearProbingHashTable(true));
+        tables.add(new OrderedLinearProbingHashTable(true));
+        tables.add(new QuadraticProbingHashTable(true));
+        tables.add(new IncrementalLinearProbingHashTable(true));
+        tables.add(new CompactLinearProbingHashTable(true));
+
+        for (HashTable table : tables) {
+            String name = table.getClass().getSimpleName();
+            for (int i = 0; i < 300; i++) {
+                table.put("Person " + i, "301-405-" + i);
+                if (i % 3 == 0) {
+                    table.remove("Person " + (i / 2));
+                }
+            }
+            HashTable copy = new RobinHoodHashTable();
+            table.forEach(copy::put);
+            HashTable mapped = new MappedHashTable(MappedHashTable.toImage(copy));
+            for (int i = 0; i < 400; i++) {
+                assertEquals(name, table.get("Person " + i).getValue(), table.lookup("Person " + i));
+                assertEquals(name, table.lookup("Person " + i), mapped.lookup("Person " + i));
+            }
+            assertNull(name, table.lookup(null));
+            assertNull(name, mapped.lookup(null));
+        }
+    }
+
+    @Test
+    public void testHashFunctions() {
+        HashFunction murmur = HashFunction.murmur3((int) SEED);
+        assertEquals("Phonebook".hashCode(), HashFunction.STRING_HASH_CODE.hash("Phonebook"));
+        assertEquals(murmur.hash("Phonebook"), HashFunction.murmur3((int) SEED).hash("Phonebook"));
+        assertTrue(murmur.hash("Phonebook") != HashFunction.murmur3((int) SEED + 1).hash("Phonebook"));
+        assertTrue("\"Aa\" and \"BB\" should not collide.", murmur.hash("Aa") != murmur.hash("BB"));
+
+        // Sequential phone numbers pile up into long clusters under String.hashCode().
+        int[] hits = new int[2], misses = new int[2];
+        HashFunction[] functions = {HashFunction.STRING_HASH_CODE, murmur};
+        for (int f = 0; f < functions.length; f++) {
+            LinearProbingHashTable lp = new LinearProbingHashTable(false, CapacityPolicy.PRIME, functions[f]);
+            for (int i = 0; i < 10000; i++) {
+                lp.put("301-405-" + i, "Person " + i);
+            }
+            for (int i = 0; i < 10000; i++) {
+                hits[f] += lp.get("301-405-" + i).getProbes();
+                misses[f] += lp.get("301-405-" + (10000 + i)).getProbes();
+            }
+        }
+        assertTrue("Successful searches took " + hits[1] + " probes instead of " + hits[0] + ".", hits[1] < hits[0]);
+        assertTrue("Unsuccessful searches took " + misses[1] + " probes instead of " + misses[0] + ".", misses[1] < misses[0]);
+
+        // Keys with the same String.hashCode() all end up in the same chain, unless they are hashed with a seed.
+        String[] blocks = {"Aa", "BB"};
+        String[] keys = new String[64];
+        int plainProbes = 0, seededProbes = 0;
+        SeparateChainingHashTable plain = new SeparateChainingHashTable();
+        SeparateChainingHashTable seeded = new SeparateChainingHashTable(SeparateChainingHashTable.DEFAULT_MAX_LOAD_FACTOR,
+                SeparateChainingHashTable.DEFAULT_MIN_LOAD_FACTOR, HashFunction.seeded());
+        for (int i = 0; i < 64; i++) {
+            StringBuilder key = new StringBuilder();
+            for (int bit = 0; bit < 6; bit++) {
+                key.append(blocks[(i >> bit) & 1]);
+            }
+            keys[i] = key.toString();
+            plain.put(keys[i], Integer.toString(i));
+            seeded.put(keys[i], Integer.toString(i));
+        }
+        for (String key : keys) {
+            plainProbes = Math.max(plainProbes, plain.get(key).getProbes());
+            seededProbes = Math.max(seededProbes, seeded.get(key).getProbes());
+        }
+        assertEquals(64, plainProbes);
+        assertTrue("The longest chain has " + seededProbes + " keys.", seededProbes < 16);
+
+        for (CollisionResolver resolver : resolvers) {
+            HashTable table = Phonebook.createTable(resolver, HashFunction.seeded());
+            for (int i = 0; i < 500; i++) {
+                table.put("301-405-" + i, "Person " + i);
+            }
+            assertEquals(resolver.toString(), 500, table.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(resolver.toString(), (i < 500) ? "Person " + i : null, table.lookup("301-405-" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testSwissTable() {
+        SwissHashTable swiss = new SwissHashTable();
+        assertEquals(16, swiss.capacity());
+        for (int i = 0; i < 14; i++) {
+            assertEquals("Person " + i, swiss.put("301-405-" + i, "Person " + i).getValue());
+        }
+        assertEquals("Live entries can take up 7/8 of the table.", 16, swiss.capacity());
+        swiss.put("301-405-14", "Person 14");
+        assertEquals(32, swiss.capacity());
+        assertEquals(15, swiss.size());
+        swiss.put("301-405-3", "Carl");
+        assertEquals("Existing keys should be updated.", 15, swiss.size());
+        assertEquals("Carl", swiss.get("301-405-3").getValue());
+
+        for (int i = 15; i < 10000; i++) {
+            swiss.put("301-405-" + i, "Person " + i);
+        }
+        assertEquals(16384, swiss.capacity());
+        // Unsuccessful searches are rejected by the tags of their groups, nearly always before comparing any key.
+        int misses = 0;
+        for (int i = 0; i < 1000; i++) {
+            misses += swiss.get("240-000-" + i).getProbes();
+        }
+        assertTrue("1000 unsuccessful searches took " + misses + " probes.", misses < 1300);
+        for (int i = 0; i < 10000; i += 2) {
+            assertEquals((i == 3) ? "Carl" : "Person " + i, swiss.remove("301-405-" + i).getValue());
+        }
+        assertNull(swiss.remove("301-405-0").getValue());
+        assertEquals(5000, swiss.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i % 2 == 1, swiss.containsKey("301-405-" + i));
+        }
+        swiss.compact();
+        assertEquals("compact() should not change the capacity.", 16384, swiss.capacity());
+        assertEquals(0, swiss.compact());
+
+        // Churning through deletions and insertions should not grow the table, however many tombstones it leaves.
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10000; i += 2) {
+                swiss.put("301-405-" + i, "Person " + i);
+            }
+            for (int i = 0; i < 10000; i += 2) {
+                swiss.remove("301-405-" + i);
+            }
+        }
+        assertEquals(5000, swiss.size());
+        assertEquals(16384, swiss.capacity());
+        assertTrue(swiss.containsValue("Person 9999"));
+        assertFalse(swiss.containsValue("Person 9998"));
+        assertNull(swiss.get(null).getValue());
+        assertEquals(0, swiss.remove(null).getProbes());
+    }
+
+    @Test
+    public void testMultiPhonebook() {
+        MultiPhonebook mpb = new MultiPhonebook();
+        assertTrue(mpb.isEmpty());
+        mpb.addEntry("Arnold", "894-59-0011");
+        mpb.addEntry("Arnold", "301-405-0000");
+        mpb.addEntry("Tiffany", "894-59-0011");
+        mpb.addEntry("Arnold", "894-59-0011");
+        assertEquals("Adding an existing entry should have no effect.", 3, mpb.size());
+        assertEquals(List.of("894-59-0011", "301-405-0000"), mpb.getNumbersOf("Arnold"));
+        assertEquals(List.of("Arnold", "Tiffany"), mpb.getOwnersOf("894-59-0011"));
+
+        mpb.addEntry("Arnold", "240-000-0000");
+        List<String> numbers = mpb.getNumbersOf("Arnold");
+        assertEquals(List.of("894-59-0011", "301-405-0000", "240-000-0000"), numbers);
+        try {
+            numbers.set(0, "000-000-0000");
+            fail("The numbers of a name should not be modifiable.");
+        } catch (UnsupportedOperationException ignored) {
+        }
+
+        mpb.deleteEntry("Arnold", "894-59-0011");
+        mpb.deleteEntry("Arnold", "111-111-1111");
+        assertEquals("Earlier lookups should not see later updates.", 3, numbers.size());
+        assertEquals(List.of("301-405-0000", "240-000-0000"), mpb.getNumbersOf("Arnold"));
+        assertEquals(List.of("Tiffany"), mpb.getOwnersOf("894-59-0011"));
+        mpb.deleteEntry("Tiffany", "894-59-0011");
+        assertTrue(mpb.getOwnersOf("894-59-0011").isEmpty());
+        assertTrue(mpb.getNumbersOf("Tiffany").isEmpty());
+        assertTrue(mpb.getNumbersOf(null).isEmpty());
+        assertEquals(2, mpb.size());
+
+        // Compare against a map of sets, through enough churn to grow the table and shift clusters back on deletion.
+        MultiValuedHashTable table = new MultiValuedHashTable();
+        Map<String, LinkedHashSet<String>> expected = new HashMap<>();
+        Random rng = new Random(SEED);
+        for (int i = 0; i < 100000; i++) {
+            String name = "Person " + rng.nextInt(2000);
+            String number = "301-405-" + rng.nextInt(8);
+            if (rng.nextInt(3) == 0) {
+                LinkedHashSet<String> set = expected.get(name);
+                assertEquals(set != null && set.remove(number), table.remove(name, number));
+                if (set != null && set.isEmpty()) {
+                    expected.remove(name);
+                }
+            } else {
+                assertEquals(expected.computeIfAbsent(name, n -> new LinkedHashSet<>()).add(number), table.put(name, number));
+            }
+        }
+        int pairs = 0;
+        for (Map.Entry<String, LinkedHashSet<String>> entry : expected.entrySet()) {
+            assertEquals(new ArrayList<>(entry.getValue()), table.get(entry.getKey()));
+            assertEquals(entry.getValue().size(), table.count(entry.getKey()));
+            pairs += entry.getValue().size();
+        }
+        assertEquals(expected.size(), table.keyCount());
+        assertEquals(pairs, table.size());
+        for (int i = 0; i < 2000; i++) {
+            assertEquals(expected.containsKey("Person " + i), table.containsKey("Person " + i));
+        }
+        int[] visited = new int[1];
+        table.forEach((name, number) -> {
+            assertTrue(expected.get(name).contains(number));
+            visited[0]++;
+        });
+        assertEquals(pairs, visited[0]);
+
+        table = new MultiValuedHashTable();
+        table.put("Carl", "301-405-0");
+        table.put("Carl", "301-405-1");
+        table.put("Jessie", "301-405-1");
+        assertEquals(List.of("301-405-0", "301-405-1"), table.removeAll("Carl"));
+        assertEquals(1, table.size());
+        assertFalse(table.containsKey("Carl"));
+        assertTrue(table.contains("Jessie", "301-405-1"));
+    }
+
+    @Test
+    public void testHardDeleteBackwardShift() {
+        // "A" and "H" hash to cell 2 of 7, "B" to cell 3 and "C" to cell 4.
+        LinearProbingHashTable lp = new LinearProbingHashTable(false);
+        lp.put("A", "1");
+        lp.put("H", "2");
+        lp.put("B", "3");
+        Probes removed = lp.remove("A");
+        assertEquals("1", removed.getValue());
+        assertEquals("Found in 1 probe, then 3 more cells to close the hole.", 4, removed.getProbes());
+        assertEquals("***---***\n0 NULL\n1 NULL\n2 H\n3 B\n4 NULL\n5 NULL\n6 NULL\n***---***", lp.toString());
+        assertEquals(2, lp.size());
+
+        lp = new LinearProbingHashTable(false);
+        lp.put("A", "1");
+        lp.put("H", "2");
+        lp.put("C", "3");
+        assertEquals("2", lp.remove("H").getValue());
+        assertEquals("\"C\" is in its home cell and should stay there.",
+                "***---***\n0 NULL\n1 NULL\n2 A\n3 NULL\n4 C\n5 NULL\n6 NULL\n***---***", lp.toString());
+        assertNull(lp.remove("H").getValue());
+
+        // Hard deletions used to re-insert the rest of the cluster through put(), which counted those entries again.
+        for (CapacityPolicy policy : CapacityPolicy.values()) {
+            LinearProbingHashTable hard = new LinearProbingHashTable(false, policy);
+            lp = hard;
+            // Every 1000 operations, empty the table at whatever load it has reached.
+            Map<String, String> expected = assertMatchesHashMap(policy.toString(), lp, 20000, 500, 1, false, (present, i) -> {
+                if (i % 1000 == 0) {
+                    int before = hard.capacity();
+                    for (String key : present.keySet()) {
+                        hard.remove(key);
+                    }
+                    present.clear();
+                    assertEquals("Hard deletions should never resize.", before, hard.capacity());
+                }
+            });
+            int capacity = lp.capacity();
+            for (String present : expected.keySet()) {
+                lp.remove(present);
+            }
+            assertEquals(0, lp.size());
+            assertEquals("Hard deletions should never resize.", capacity, lp.capacity());
+        }
+    }
+
+    @Test
+    public void testOffHeapHashTable() {
+        OffHeapHashTable offHeap = new OffHeapHashTable();
+        // Values of another length than the one they replace are appended as new records.
+        Map<String, String> expected = assertMatchesHashMap("OffHeapHashTable", offHeap, 50000, 5000, 2, true);
+        assertTrue(2 * offHeap.size() <= offHeap.capacity());
+
+        // Keys and values are compared as UTF-8 bytes.
+        offHeap.put("Zo\u00eb Sald\u00e1\u00f1a", "+33 \u2116 1");
+        assertEquals("+33 \u2116 1", offHeap.lookup("Zo\u00eb Sald\u00e1\u00f1a"));
+        assertNull(offHeap.lookup("Zoe Saldana"));
+        assertTrue(offHeap.containsValue("+33 \u2116 1"));
+
+        long before = offHeap.offHeapBytes();
+        for (String key : expected.keySet()) {
+            offHeap.remove(key);
+        }
+        offHeap.compact();
+        assertEquals(1, offHeap.size());
+        assertTrue("Records should have been given back.", offHeap.offHeapBytes() < before);
+        assertEquals(0, offHeap.compact());
+        assertEquals("+33 \u2116 1", offHeap.lookup("Zo\u00eb Sald\u00e1\u00f1a"));
+
+        // A released table is empty, and can be filled again.
+        offHeap.release();
+        assertEquals(0, offHeap.size());
+        assertEquals(8, offHeap.capacity());
+        assertNull(offHeap.lookup("Zo\u00eb Sald\u00e1\u00f1a"));
+        assertMatchesHashMap("Released OffHeapHashTable", offHeap, 5000, 500, 2, true);
+    }
+
+    @Test
+    public void testFreeze() {
+        for (CollisionResolver resolver : resolvers) {
+            pb = new Phonebook(resolver, resolver);
+            for (int i = 0; i < 1000; i++) {
+                pb.addEntry("Person " + i, "301-405-" + i);
+            }
+            Phonebook frozen = pb.freeze();
+            pb.deleteEntry("Person 0", "301-405-0");
+            assertEquals(resolver.toString(), 1000, frozen.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("301-405-" + i, frozen.getNumberOf("Person " + i));
+                assertEquals("Person " + i, frozen.getOwnerOf("301-405-" + i));
+            }
+            assertNull(frozen.getNumberOf("Person 1000"));
+            assertNull(frozen.getOwnerOf("Person 1"));
+            try {
+                frozen.addEntry("Carl", "301-405-1000");
+                fail("A frozen phonebook should be read-only.");
+            } catch (UnsupportedOperationException ignored) {
+            }
+        }
+
+        HashTable source = new RobinHoodHashTable();
+        for (int i = 0; i < 100000; i++) {
+            source.put("Person " + i, "301-405-" + i);
+        }
+        PerfectHashTable perfect = PerfectHashTable.of(source);
+        assertEquals(100000, perfect.size());
+        assertEquals("The hash function should be minimal.", 100000, perfect.capacity());
+        for (int i = 0; i < 110000; i++) {
+            Probes probe = perfect.get("Person " + i);
+            assertEquals((i < 100000) ? "301-405-" + i : null, probe.getValue());
+            assertEquals("Every search should make exactly one probe.", 1, probe.getProbes());
+        }
+        int[] visited = new int[1];
+        perfect.forEach((name, number) -> {
+            assertEquals(source.get(name).getValue(), number);
+            visited[0]++;
+        });
+        assertEquals(100000, visited[0]);
+        assertTrue(perfect.containsValue("301-405-99999"));
+
+        // Tables that repeat a key in forEach(), or visit fewer records than size(), can still be frozen.
+        for (CollisionResolver resolver : new CollisionResolver[]{LINEAR_PROBING, ORDERED_LINEAR_PROBING, QUADRATIC_PROBING}) {
+            pb = new Phonebook(resolver, resolver);
+            pb.addEntry("Alice", "301-405-0");
+            pb.addEntry("Bob", "301-405-1");
+            pb.addEntry("Alice", "301-405-2");
+            Phonebook frozen = pb.freeze();
+            assertEquals(resolver.toString(), pb.getNumberOf("Alice"), frozen.getNumberOf("Alice"));
+            assertEquals(resolver.toString(), "301-405-1", frozen.getNumberOf("Bob"));
+            assertEquals(resolver.toString(), "Alice", frozen.getOwnerOf("301-405-2"));
+        }
+        pb = new Phonebook(ORDERED_LINEAR_PROBING, ORDERED_LINEAR_PROBING);
+        for (int i = 0; i < 50; i++) {
+            pb.addEntry("Person " + i, "301-405-" + i);
+        }
+        for (int i = 0; i < 50; i += 2) {
+            pb.deleteEntry("Person " + i, "301-405-" + i);
+        }
+        Phonebook frozen = pb.freeze();
+        pb.forEach((name, number) -> assertEquals(number, frozen.getNumberOf(name)));
+
+        PerfectHashTable empty = PerfectHashTable.of(new RobinHoodHashTable());
+        assertEquals(0, empty.size());
+        assertNull(empty.lookup("Person 0"));
+    }
+
+    @Test
+    public void testNameRangeQueries() {
+        String[] names = {"Alice Adams", "Alan Turing", "Albert Einstein", "Bob Barker", "Alice Cooper", "Carl Sagan"};
+        for (CollisionResolver resolver : resolvers) {
+            pb = new Phonebook(resolver, resolver);
+            for (int i = 0; i < names.length; i++) {
+                pb.addEntry(names[i], "301-405-" + i);
+            }
+            assertEquals(resolver.toString(), List.of("Alan Turing", "Albert Einstein", "Alice Adams", "Alice Cooper"),
+                    pb.getNamesWithPrefix("Al", null, 10));
+            assertEquals(List.of("Alan Turing", "Albert Einstein"), pb.getNamesWithPrefix("Al", null, 2));
+            assertEquals(List.of("Alice Adams", "Alice Cooper"), pb.getNamesWithPrefix("Al", "Albert Einstein", 2));
+            assertEquals(List.of(), pb.getNamesWithPrefix("Al", "Alice Cooper", 2));
+            assertEquals(List.of(), pb.getNamesWithPrefix("Dave", null, 10));
+            assertEquals(List.of("Bob Barker", "Carl Sagan"), pb.getNamesInRange("B", null, 10));
+            assertEquals(List.of("Alan Turing", "Albert Einstein", "Alice Adams"), pb.getNamesInRange(null, "Alice B", 10));
+            assertEquals(List.of("Alice Adams"), pb.getNamesInRange("Alice Adams", "Alice Cooper", 10));
+            assertEquals(List.of("Alice Cooper", "Bob Barker"), pb.getNamesInRange("Alice Adams\0", null, 2));
+
+            // The index follows the tables once it has been built.
+            pb.deleteEntry("Alice Adams", "301-405-0");
+            pb.addEntry("Alfred Hitchcock", "301-405-6");
+            pb.addEntries(new String[] {"Alma Mahler"}, new String[] {"301-405-7"}, true);
+            assertEquals(List.of("Alan Turing", "Albert Einstein", "Alfred Hitchcock", "Alice Cooper", "Alma Mahler"),
+                    pb.getNamesWithPrefix("Al", null, 10));
+            assertEquals(7, pb.getNamesInRange(null, null, Integer.MAX_VALUE).size());
+        }
+
+        // A name stays in the index for as long as getNumberOf() finds it, even in tables that keep a second entry
+        // for a name added twice.
+        for (CollisionResolver resolver : resolvers) {
+            pb = new Phonebook(resolver, resolver);
+            pb.getNamesWithPrefix("A", null, 10);
+            pb.addEntry("Alice", "1");
+            pb.addEntry("Alice", "2");
+            pb.deleteEntry("Alice", "2");
+            assertEquals(resolver.toString(), pb.getNumberOf("Alice") == null ? List.of() : List.of("Alice"),
+                    pb.getNamesWithPrefix("A", null, 10));
+        }
+
+        pb = new Phonebook(CollisionResolver.SWISS_TABLE, CollisionResolver.SWISS_TABLE);
+        TreeMap<String, String> sorted = new TreeMap<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < 20000; i++) {
+            String name = "Person " + random.nextInt(100000);
+            pb.addEntry(name, "301-405-" + i);
+            sorted.put(name, "301-405-" + i);
+        }
+        List<String> paged = new ArrayList<>();
+        for (List<String> page = pb.getNamesWithPrefix("Person 1", null, 100); !page.isEmpty();
+             page = pb.getNamesWithPrefix("Person 1", page.get(page.size() - 1), 100)) {
+            paged.addAll(page);
+        }
+        assertEquals(new ArrayList<>(sorted.subMap("Person 1", "Person 2").keySet()), paged);
+        try {
+            pb.getNamesWithPrefix(null, null, 10);
+            fail("A null prefix should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testDeduplication() {
+        for (CollisionResolver resolver : resolvers) {
+            pb = new Phonebook(resolver, resolver, true);
+            pb.addEntry(new String("Alice"), new String("301-405-0"));
+            pb.addEntry(new String("Alice"), new String("301-405-1"));
+            pb.addEntries(new String[] {new String("Alice")}, new String[] {new String("301-405-2")}, true);
+            if (resolver != OFF_HEAP) {
+                assertSame(resolver.toString(), pb.getOwnerOf("301-405-0"), pb.getOwnerOf("301-405-1"));
+                assertSame(resolver.toString(), pb.getOwnerOf("301-405-0"), pb.getOwnerOf("301-405-2"));
+            }
+        }
+
+        // Strings that are no longer held are dropped eventually, and the ones still held stay canonical.
+        pb = new Phonebook(ROBIN_HOOD, ROBIN_HOOD, true);
+        pb.addEntry("Alice", "301-405-0");
+        for (int i = 0; i < 10000; i++) {
+            pb.addEntry("Person " + i, "301-405-" + (i + 1));
+            pb.deleteEntry("Person " + i, "301-405-" + (i + 1));
+        }
+        assertEquals(1, pb.size());
+        assertSame(pb.getOwnerOf("301-405-0"), pb.getOwnerOf(new String("301-405-0")));
+        pb.addEntry(new String("Alice"), "301-405-9");
+        assertSame(pb.getOwnerOf("301-405-0"), pb.getOwnerOf("301-405-9"));
+
+        // Bulk loads are deduplicated across the whole batch, and against what is already there.
+        for (CollisionResolver resolver : new CollisionResolver[]{SEPARATE_CHAINING, ROBIN_HOOD}) {
+            pb = new Phonebook(resolver, resolver, true);
+            for (int round = 0; round < 2; round++) {
+                String[] names = new String[1000];
+                String[] numbers = new String[1000];
+                for (int i = 0; i < 1000; i++) {
+                    names[i] = new String("Person " + i);
+                    numbers[i] = "301-405-" + (1000 * round + i);
+                }
+                pb.addEntries(names, numbers, round == 1);
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertSame(resolver.toString(), pb.getOwnerOf("301-405-" + i), pb.getOwnerOf("301-405-" + (1000 + i)));
+            }
+        }
+
+        pb = new Phonebook(ROBIN_HOOD, ROBIN_HOOD);
+        pb.addEntry(new String("Alice"), new String("301-405-0"));
+        pb.addEntry(new String("Alice"), new String("301-405-1"));
+        assertTrue(pb.getOwnerOf("301-405-0") != pb.getOwnerOf("301-405-1"));
+    }
 }
@@ -0,0 +1,312 @@
+package phonebook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * <p>{@link WriteAheadLog} is an <b>append-only</b> file of {@link Phonebook} mutations. Every record describes a single
+ * {@link Phonebook#addEntry(String, String)} or {@link Phonebook#deleteEntry(String, String)} call, and replaying the
+ * records of a log, in order, on top of the state the log started from reproduces the state it ended at.</p>
+ *
+ * <p>Records are first collected in memory and then written and {@link FileChannel#force(boolean) forced} to disk in
+ * <b>batches</b>, so that the cost of an fsync is shared by every record written since the previous one. When to
+ * force is decided by the <b>sync interval</b> the log was opened with:</p>
+ * <ul>
+ *     <li>0: every {@link #awaitDurable(long)} call returns only once its record is on disk. Threads that call it while
+ *     another thread is forcing the log wait for that force to end, and then a <b>single</b> force covers all of them
+ *     (&quot; group commit &quot;).</li>
+ *     <li>A positive number of milliseconds: a background thread forces the log that often, and
+ *     {@link #awaitDurable(long)} returns immediately. A crash loses at most the records of the last interval.</li>
+ * </ul>
+ *
+ * <p>Every record is framed by its length and a CRC32 checksum:</p>
+ * <pre>
+ *     length | checksum | operation | name length | name | number length | number
+ * </pre>
+ * <p>where lengths are big-endian {@code int}s, the operation is a single byte and strings are UTF-8. A crash in the
+ * middle of a write leaves a <b>torn</b> record at the end of the file, which {@link #replay(Path, Replayer)} detects
+ * and cuts off.</p>
+ *
+ * @author Yosefe Eshete
+ * @see DurablePhonebook
+ * @see Phonebook
+ */
+public class WriteAheadLog implements Closeable {
+
+    /**
+     * The operation byte of records written for {@link Phonebook#addEntry(String, String)}.
+     */
+    public static final byte ADD = 1;
+
+    /**
+     * The operation byte of records written for {@link Phonebook#deleteEntry(String, String)}.
+     */
+    public static final byte DELETE = 2;
+
+    /**
+     * Receives the records of a log while it is being replayed.
+     */
+    @FunctionalInterface
+    public interface Replayer {
+        /**
+         * Called once for every record of the log, in the order they were appended.
+         * @param operation Either {@link #ADD} or {@link #DELETE}.
+         * @param name The name of the entry.
+         * @param number The number of the entry.
+         */
+        void apply(byte operation, String name, String number);
+    }
+
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;         // length and checksum.
+    private static final int MAX_PENDING_BYTES = 1 << 20;              // Written out even before the next force.
+
+    private final FileChannel channel;
+    private final long syncIntervalMillis;
+    private final ScheduledExecutorService syncer;
+
+    private ByteBuffer pending = ByteBuffer.allocate(4096);  // Guarded by this.
+    private long appended;                                   // Bytes appended so far, guarded by this.
+    private long written;                                    // Bytes handed to the channel, guarded by this.
+    private volatile long durable;                           // Bytes known to be on disk.
+    private final Object forceLock = new Object();           // Held by the thread that is forcing the log.
+    private volatile IOException failure;                    // The first write or force that failed, if any.
+
+    // After a failed force, the kernel may have dropped the pages it could not write, so that a later force succeeds
+    // without them: once anything fails, every later call must fail too.
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("The log failed earlier, and records appended before then may be lost.", failure);
+        }
+    }
+
+    private void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    // Hands the pending records to the channel. Callers hold the monitor of this.
+    private void writePending() throws IOException {
+        pending.flip();
+        try {
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        pending.clear();
+        written = appended;
+    }
+
+    /**
+     * Opens a log for appending, creating its file if it does not exist. Records are appended after the ones already in
+     * the file, so the file should have been replayed (and any torn record cut off) first.
+     * @param file The file of the log.
+     * @param syncIntervalMillis 0 to make every record durable before {@link #awaitDurable(long)} returns, or the
+     *                           number of milliseconds between background forces.
+     * @throws IOException if the file cannot be opened.
+     * @throws IllegalArgumentException if syncIntervalMillis is negative.
+     */
+    public WriteAheadLog(Path file, long syncIntervalMillis) throws IOException {
+        if (syncIntervalMillis < 0)
+            throw new IllegalArgumentException("Provided: syncIntervalMillis=" + syncIntervalMillis);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        appended = written = durable = channel.size();
+        this.syncIntervalMillis = syncIntervalMillis;
+        if (syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "WriteAheadLog sync");
+                t.setDaemon(true);
+                return t;
+            });
+            syncer.scheduleWithFixedDelay(() -> {
+                try {
+                    sync();
+                } catch (IOException ignored) {
+                    // sync() has kept the failure, which every later call on the log reports to its caller.
+                }
+            }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Appends a record to the log. The record is <b>not</b> necessarily on disk when this method returns; pass the
+     * returned position to {@link #awaitDurable(long)} for that.
+     * @param operation Either {@link #ADD} or {@link #DELETE}.
+     * @param name The name of the entry.
+     * @param number The number of the entry.
+     * @return The position in the log right after the record.
+     * @throws UncheckedIOException if writing out the records collected so far fails, or if writing or forcing the
+     * log has failed before.
+     */
+    public synchronized long append(byte operation, String name, String number) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] numberBytes = number.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 2 * Integer.BYTES + nameBytes.length + numberBytes.length;
+        CRC32 crc = new CRC32();
+        ByteBuffer payload;
+
+        try {
+            checkFailure();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (pending.remaining() < FRAME_BYTES + length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + FRAME_BYTES + length));
+            pending.flip();
+            pending = larger.put(pending);
+        }
+        pending.putInt(length).putInt(0);   // The checksum is filled in once the payload is in place.
+        payload = pending.duplicate();
+        pending.put(operation).putInt(nameBytes.length).put(nameBytes).putInt(numberBytes.length).put(numberBytes);
+        payload.limit(pending.position());
+        crc.update(payload);
+        pending.putInt(pending.position() - length - Integer.BYTES, (int) crc.getValue());
+        appended += FRAME_BYTES + length;
+
+        if (pending.position() >= MAX_PENDING_BYTES) {
+            try {
+                writePending();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * Writes every record appended so far to the file, and forces them to disk.
+     * @throws IOException if the log cannot be written or forced, now or at any earlier point.
+     */
+    public void sync() throws IOException {
+        long target;
+        synchronized (forceLock) {
+            checkFailure();
+            synchronized (this) {
+                if (written < appended) {
+                    writePending();
+                }
+                target = written;
+            }
+            if (durable < target) {
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    fail(e);
+                    throw e;
+                }
+                durable = target;
+            }
+        }
+    }
+
+    /**
+     * Waits until the log is on disk up to the given position, if this log was opened with a sync interval of 0.
+     * Otherwise, returns immediately, and the record will be forced by the next background sync.
+     * @param position A position returned by {@link #append(byte, String, String)}.
+     * @throws UncheckedIOException if the log cannot be written or forced, now or at any earlier point, background
+     * syncs included.
+     */
+    public void awaitDurable(long position) {
+        try {
+            checkFailure();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (syncIntervalMillis > 0 || durable >= position) {
+            return;
+        }
+        try {
+            // Whoever forces the log next covers every record appended before it started, ours included.
+            sync();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the size of the log, including the records that are not on disk yet.
+     * @return The number of bytes appended to the log since its file was created.
+     */
+    public synchronized long size() {
+        return appended;
+    }
+
+    /**
+     * Forces every record to disk and closes the file.
+     * @throws IOException if the log cannot be written, forced or closed, or if writing or forcing it has failed before.
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Replays the records of a log file, in order, and cuts off whatever follows the last intact record: the remains
+     * of a write that a crash interrupted. A file that does not exist is an empty log.
+     * @param file The file of the log.
+     * @param replayer Receives every intact record.
+     * @return The number of records replayed.
+     * @throws IOException if the file cannot be read or truncated.
+     */
+    public static int replay(Path file, Replayer replayer) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int records = 0;
+        long valid = 0;
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer contents = log.map(FileChannel.MapMode.READ_ONLY, 0, log.size());
+            CRC32 crc = new CRC32();
+            while (contents.remaining() >= FRAME_BYTES) {
+                int length = contents.getInt();
+                int checksum = contents.getInt();
+                if (length < 1 + 2 * Integer.BYTES || length > contents.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = contents.slice(contents.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                byte operation = payload.get();
+                byte[] name = new byte[payload.getInt()];
+                payload.get(name);
+                byte[] number = new byte[payload.getInt()];
+                payload.get(number);
+                replayer.apply(operation, new String(name, StandardCharsets.UTF_8), new String(number, StandardCharsets.UTF_8));
+                contents.position(contents.position() + length);
+                valid = contents.position();
+                records++;
+            }
+            if (valid < log.size()) {
+                log.truncate(valid);
+                log.force(false);
+            }
+        }
+        return records;
+    }
+}
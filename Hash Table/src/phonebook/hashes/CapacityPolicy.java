@@ -0,0 +1,28 @@
+package phonebook.hashes;
+
+import phonebook.utils.PrimeGenerator;
+
+/**
+ * <p>{@link CapacityPolicy} is an enum which provides named constants for the two ways in which an
+ * {@link OpenAddressingHashTable} can choose its capacities and map hash codes to cells: </p>
+ * <ol>
+ *     <li><i>Prime</i>, the scheme we have talked about in class: every capacity is prime, as provided by
+ *     {@link PrimeGenerator}, and a hash code is mapped to a cell by taking it <b>mod</b> the capacity. This is the
+ *     default for all of our openly addressed hash tables, and the one the probe counts in the writeup assume.</li>
+ *     <li><i>Power of two</i>, where every capacity is a power of two (starting at 8 and doubling on every resizing). The
+ *     hash code is first <b>mixed</b>, so that its high bits influence its low bits, and then mapped to a cell
+ *     with a <b>bit mask</b> instead of an integer division. Quadratic probing takes triangular-number jumps
+ *     (1, 3, 6, 10, ...), which are guaranteed to visit every cell of a power-of-two table.</li>
+ * </ol>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see OpenAddressingHashTable
+ * @see LinearProbingHashTable
+ * @see OrderedLinearProbingHashTable
+ * @see QuadraticProbingHashTable
+ */
+public enum CapacityPolicy {
+    PRIME,
+    POWER_OF_TWO
+}
@@ -2,7 +2,7 @@ package phonebook.hashes;
 
 /**
  * <p>{@link CollisionResolver} is an enum which provides named constants for
- * four of the most widely used collision resolution techniques in hash tables: </p>
+ * the collision resolution techniques that our hash tables implement: </p>
  * <ol>
  *     <li><i>Separate Chaining</i>, a simple collision resolver which allocates a linked list for every cell of the hash table.
  *          All keys hashed to the same cell are put in the back of a linked list which containsKVPair all same-hash keys. Enlarging this hash table
@@ -24,10 +24,24 @@ package phonebook.hashes;
  * @see SeparateChainingHashTable
  * @see LinearProbingHashTable
  * @see QuadraticProbingHashTable
+ * @see CompactLinearProbingHashTable
+ * @see RobinHoodHashTable
+ * @see CuckooHashTable
+ * @see IncrementalLinearProbingHashTable
+ * @see PooledSeparateChainingHashTable
+ * @see SwissHashTable
+ * @see OffHeapHashTable
  */
 public enum CollisionResolver {
     SEPARATE_CHAINING,
     LINEAR_PROBING,
     ORDERED_LINEAR_PROBING,
-    QUADRATIC_PROBING
+    QUADRATIC_PROBING,
+    COMPACT_LINEAR_PROBING,
+    ROBIN_HOOD,
+    CUCKOO,
+    INCREMENTAL_LINEAR_PROBING,
+    POOLED_SEPARATE_CHAINING,
+    SWISS_TABLE,
+    OFF_HEAP
 }
@@ -0,0 +1,363 @@
+package phonebook.hashes;
+
+import java.util.function.BiConsumer;
+
+import phonebook.utils.KVPair;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link CompactLinearProbingHashTable} is an Openly Addressed {@link HashTable} which resolves collisions with
+ * <b>Linear Probing</b>, exactly like {@link LinearProbingHashTable}, but does <b>not</b> store {@link KVPair} instances.
+ * Instead, every cell of the table is spread over three parallel arrays: one for the keys, one for the values and
+ * one that caches the full (top bit masked) hash code of every key. This buys us three things:</p>
+ * <ol>
+ *     <li>No per-entry object is allocated on insertion; a cell is just two references and an {@code int}.</li>
+ *     <li>Probing compares the cached hash codes before it ever touches a key {@link String}, so most of the cells
+ *     we walk over during a collision chain are rejected without following a pointer.</li>
+ *     <li>Resizing moves references from the old arrays to the new ones using the cached hash codes, without
+ *     allocating or re-hashing anything.</li>
+ * </ol>
+ *
+ * <p>Like the other openly addressed tables, the capacity is always prime (as given by {@link PrimeGenerator}) and
+ * the table is resized on the insertion that follows the one which made it at least half full. Unlike
+ * {@link LinearProbingHashTable}, inserting a key that already exists <b>updates</b> its value in place. Under soft
+ * deletion, insertions reuse the first tombstone of their probe sequence, and the table is {@link #compact() compacted}
+ * in place once tombstones take up more than {@link OpenAddressingHashTable#MAX_TOMBSTONE_RATIO} of it.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see OpenAddressingHashTable
+ * @see CollisionResolver
+ */
+public class CompactLinearProbingHashTable implements HashTable {
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    // A sentinel key for soft deleted cells. It is compared by reference only, and its cached hash
+    // can never match the (non-negative) hash of a real key.
+    private static final String TOMBSTONE = new String("");
+    private static final int TOMBSTONE_HASH = -1;
+
+    private String[] keys;
+    private String[] values;
+    private int[] hashes;
+
+    private PrimeGenerator primeGenerator;
+    private int count;
+    private int occupied;  // Live entries plus tombstones.
+    private boolean softFlag;
+    private boolean resizeBool = false;
+    private int resizeProbe;
+    private HashFunction hashFunction;
+
+    // Same hash as OpenAddressingHashTable, but without reducing it mod the capacity, so that it can be cached.
+    private int fullHash(String key) {
+        return hashFunction.hash(key) & 0x7fffffff;
+    }
+
+    private void resize(int newCapacity) {
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldHashes = hashes;
+        int loc;
+
+        keys = new String[newCapacity];
+        values = new String[newCapacity];
+        hashes = new int[newCapacity];
+        resizeProbe = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            resizeProbe++;
+            if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE) {
+                loc = oldHashes[i] % newCapacity;
+                resizeProbe++;
+                while (keys[loc] != null) {
+                    loc = (loc + 1) % newCapacity;
+                    resizeProbe++;
+                }
+                keys[loc] = oldKeys[i];
+                values[loc] = oldValues[i];
+                hashes[loc] = oldHashes[i];
+            }
+        }
+        occupied = count;
+    }
+
+    // Returns the cell that holds key, or -(number of probes) if key is not in the table.
+    private int find(String key, int hash) {
+        int loc = hash % keys.length;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[loc] == null) {
+                return -(i + 1);
+            }
+            if (hashes[loc] == hash && keys[loc].equals(key)) {
+                return loc;
+            }
+            loc = (loc + 1) % keys.length;
+        }
+        return -keys.length;
+    }
+
+    // Number of probes it took find() to reach cell loc, starting from the home cell of hash.
+    private int distance(int hash, int loc) {
+        int home = hash % keys.length;
+        return ((loc - home + keys.length) % keys.length) + 1;
+    }
+
+    /*
+     * Hard deletion by backward shifting: every entry after the freed cell in the same cluster is moved
+     * back into the hole if its home cell allows it, so no re-insertions (and no resizings) take place.
+     * Returns the number of cells inspected.
+     */
+    private int shiftBack(int hole) {
+        int probeCount = 0;
+        int loc = (hole + 1) % keys.length;
+        int home;
+        while (keys[loc] != null) {
+            probeCount++;
+            home = hashes[loc] % keys.length;
+            // The entry at loc may fill the hole only if its home cell is not cyclically within (hole, loc].
+            if ((loc > hole) ? (home <= hole || home > loc) : (home <= hole && home > loc)) {
+                keys[hole] = keys[loc];
+                values[hole] = values[loc];
+                hashes[hole] = hashes[loc];
+                keys[loc] = null;
+                values[loc] = null;
+                hole = loc;
+            }
+            loc = (loc + 1) % keys.length;
+        }
+        return probeCount + 1; // The empty cell that ended the cluster.
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Constructor with soft deletion option. Initializes the internal storage with a size equal to the starting value of  {@link PrimeGenerator}.
+     *
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *             we want soft deletion, {@code false} otherwise.
+     */
+    public CompactLinearProbingHashTable(boolean soft) {
+        this(soft, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with soft deletion and hash function options. Initializes the internal storage with a size equal to the
+     * starting value of {@link PrimeGenerator}.
+     *
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *             we want soft deletion, {@code false} otherwise.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public CompactLinearProbingHashTable(boolean soft, HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+        primeGenerator = new PrimeGenerator();
+        keys = new String[primeGenerator.getCurrPrime()];
+        values = new String[keys.length];
+        hashes = new int[keys.length];
+        softFlag = soft;
+        count = 0;
+        occupied = 0;
+    }
+
+    @Override
+    public Probes put(String key, String value) {
+        int hash;
+        int loc;
+        int tombstone = -1;    // The first tombstone on the probe sequence of key, if any.
+        int probeCount = 0;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (resizeBool) {
+            resize(primeGenerator.getNextPrime());
+            probeCount += resizeProbe;
+        }
+        resizeBool = false;
+
+        hash = fullHash(key);
+        loc = hash % keys.length;
+        for (int i = 0; i < keys.length; i++) {
+            probeCount++;
+            if (keys[loc] == null) {
+                if (tombstone >= 0) {
+                    // key is not in the table, so it can take the place of the first tombstone we saw.
+                    loc = tombstone;
+                } else {
+                    occupied++;
+                }
+                keys[loc] = key;
+                values[loc] = value;
+                hashes[loc] = hash;
+                count++;
+                break;
+            }
+            if (keys[loc] == TOMBSTONE) {
+                if (tombstone < 0) {
+                    tombstone = loc;
+                }
+            } else if (hashes[loc] == hash && keys[loc].equals(key)) {
+                values[loc] = value;
+                break;
+            }
+            loc = (loc + 1) % keys.length;
+        }
+
+        if (2 * occupied >= keys.length) {
+            resizeBool = true;
+        }
+        return new Probes(value, probeCount);
+    }
+
+    /**
+     * Grows the table, in a single step, to the first prime capacity that can hold the given number of entries
+     * while staying less than half full. Tombstones are dropped.
+     * @param entries The number of entries the table should be able to hold without resizing.
+     * @return The number of probes made by moving the current entries.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int capacity = keys.length;
+        if (2 * entries < capacity) {
+            return 0;
+        }
+        while (2 * entries >= capacity) {
+            capacity = primeGenerator.getNextPrime();
+        }
+        resize(capacity);
+        resizeBool = false;
+        return resizeProbe;
+    }
+
+    /**
+     * Rehashes the table in place, at the same capacity, if it holds any tombstones.
+     * @return The number of probes made by moving the current entries, 0 if there were no tombstones.
+     */
+    @Override
+    public int compact() {
+        if (occupied == count) {
+            return 0;
+        }
+        resize(keys.length);
+        resizeBool = 2 * occupied >= keys.length;
+        return resizeProbe;
+    }
+
+    @Override
+    public Probes get(String key) {
+        int hash;
+        int loc;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        hash = fullHash(key);
+        loc = find(key, hash);
+        return (loc < 0) ? new Probes(null, -loc) : new Probes(values[loc], distance(hash, loc));
+    }
+
+    @Override
+    public String lookup(String key) {
+        int loc = (key == null) ? -1 : find(key, fullHash(key));
+        return (loc < 0) ? null : values[loc];
+    }
+
+    @Override
+    public Probes remove(String key) {
+        int hash;
+        int loc;
+        int probeCount;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        hash = fullHash(key);
+        loc = find(key, hash);
+        if (loc < 0) {
+            return new Probes(null, -loc);
+        }
+        probeCount = distance(hash, loc);
+        value = values[loc];
+        count--;
+        if (softFlag) {
+            keys[loc] = TOMBSTONE;
+            values[loc] = null;
+            hashes[loc] = TOMBSTONE_HASH;
+            if (occupied - count > OpenAddressingHashTable.MAX_TOMBSTONE_RATIO * keys.length) {
+                probeCount += compact();
+            }
+        } else {
+            keys[loc] = null;
+            values[loc] = null;
+            occupied--;
+            probeCount += shiftBack(loc);
+        }
+        return new Probes(value, probeCount);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && find(key, fullHash(key)) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && keys[i] != TOMBSTONE && values[i].equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && keys[i] != TOMBSTONE) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * A {@code public } {@link Object#toString()} overriding in the same format as {@link OpenAddressingHashTable#toString()}.
+     * Useful for debugging.
+     */
+    @Override
+    public String toString() {
+        StringBuilder ret = new StringBuilder();
+        ret.append("***---***\n");
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null)
+                ret.append(i).append(" NULL\n");
+            else if (keys[i] == TOMBSTONE)
+                ret.append(i).append(" TOMBSTONE\n");
+            else
+                ret.append(i).append(" ").append(keys[i]).append("\n");
+        }
+        ret.append("***---***");
+        return ret.toString();
+    }
+}
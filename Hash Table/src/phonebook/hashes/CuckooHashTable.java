@@ -0,0 +1,358 @@
+package phonebook.hashes;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import phonebook.utils.KVPair;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link CuckooHashTable} is a {@link HashTable} that implements <b>Cuckoo Hashing</b> as its collision resolution
+ * strategy. The table is split into two equally sized arrays, each with its own hash function, and every key lives in
+ * <b>exactly one</b> of the two cells its hash functions point to. A key that finds both of its cells taken kicks out the
+ * occupant of one of them, which then moves to <b>its</b> other cell, possibly kicking out another key, and so on. If this
+ * chain of evictions goes on for too long (because it has run into a cycle), the key that was left homeless is put into a
+ * small <b>stash</b>, and if the stash is full too, the whole table is rebuilt with fresh hash functions.</p>
+ *
+ * <p>The payoff is that searches and deletions <b>never</b> probe more than two cells and the stash, no matter how
+ * the keys cluster: {@link #get(String)} reports at most {@code 2 + } {@link #STASH_SIZE} probes. The price is paid by
+ * insertions, and by keeping the table at most 40&#37; full, which is where two-choice cuckoo hashing stops
+ * being able to place keys reliably. Both arrays always have a prime length, given by {@link PrimeGenerator}.</p>
+ *
+ * <p>Inserting a key that already exists <b>updates</b> its value. Deletions are always &quot; hard &quot;,
+ * since no other key ever depends on the cell of a deleted one.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see RobinHoodHashTable
+ * @see CollisionResolver
+ */
+public class CuckooHashTable implements HashTable {
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    /**
+     * The maximum number of keys that can live in the stash.
+     */
+    public static final int STASH_SIZE = 4;
+
+    private static final int MAX_KICKS = 32;            // Evictions before we give up on an insertion.
+    private static final int MAX_REHASHES = 8;          // Fresh hash functions to try before growing the table.
+    private static final long SEED = 0x5DEECE66DL;
+
+    private KVPair[][] tables = new KVPair[2][];
+    private int[] seeds = {0x9E3779B9, 0x7F4A7C15};
+    private KVPair[] stash = new KVPair[STASH_SIZE];
+    private int stashCount;
+    private int count;
+    private PrimeGenerator primeGenerator;
+    private Random rng = new Random(SEED);
+    private int workProbes; // Cells touched by the current insertion, rebuilds included.
+
+    // A seeded hash over the characters of key, finished with the MurmurHash3 mixer. We can't just mix
+    // String.hashCode() with the seeds: keys with equal hash codes would then collide under every seed.
+    private int index(int which, String key) {
+        int h = seeds[which];
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (h & 0x7fffffff) % tables[which].length;
+    }
+
+    // Kicks keys around until everybody has a cell. Returns null on success, or whichever pair is left homeless.
+    private KVPair place(KVPair pair) {
+        int which = 0;
+        int loc;
+        KVPair evicted;
+
+        for (int i = 0; i < MAX_KICKS; i++) {
+            workProbes++;
+            loc = index(which, pair.getKey());
+            evicted = tables[which][loc];
+            tables[which][loc] = pair;
+            if (evicted == null) {
+                return null;
+            }
+            pair = evicted;
+            which = 1 - which;
+        }
+        return pair;
+    }
+
+    private boolean addToStash(KVPair pair) {
+        for (int i = 0; i < STASH_SIZE; i++) {
+            if (stash[i] == null) {
+                stash[i] = pair;
+                stashCount++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Re-inserts every key (and extra, if it's not null) into two arrays of the given length. Every time some key
+     * can't be placed, we draw new hash functions, and after MAX_REHASHES failures we move on to the next prime.
+     */
+    private void rebuild(int length, KVPair extra) {
+        KVPair[] all = new KVPair[count];
+        int n = 0;
+        boolean placed;
+        int attempts = 0;
+        KVPair homeless;
+
+        for (KVPair[] table : tables) {
+            for (KVPair pair : table) {
+                if (pair != null) {
+                    all[n++] = pair;
+                }
+            }
+        }
+        for (KVPair pair : stash) {
+            if (pair != null) {
+                all[n++] = pair;
+            }
+        }
+        if (extra != null) {
+            all[n++] = extra;
+        }
+        assert n == count : "rebuild(): Found " + n + " keys, but count is " + count + ".";
+
+        do {
+            tables[0] = new KVPair[length];
+            tables[1] = new KVPair[length];
+            stash = new KVPair[STASH_SIZE];
+            stashCount = 0;
+            placed = true;
+            for (int i = 0; i < n && placed; i++) {
+                homeless = place(all[i]);
+                placed = homeless == null || addToStash(homeless);
+            }
+            if (!placed) {
+                seeds[0] = rng.nextInt();
+                seeds[1] = rng.nextInt();
+                if (++attempts == MAX_REHASHES) {
+                    length = primeGenerator.getNextPrime();
+                    attempts = 0;
+                }
+            }
+        } while (!placed);
+    }
+
+    // Returns the pair with the given key, like find(), but without counting probes: unlike find(), it writes nothing.
+    private KVPair pairOf(String key) {
+        int loc;
+        for (int which = 0; which < 2; which++) {
+            loc = index(which, key);
+            if (tables[which][loc] != null && tables[which][loc].getKey().equals(key)) {
+                return tables[which][loc];
+            }
+        }
+        for (int i = 0; i < STASH_SIZE && stashCount > 0; i++) {
+            if (stash[i] != null && stash[i].getKey().equals(key)) {
+                return stash[i];
+            }
+        }
+        return null;
+    }
+
+    // Returns the pair with the given key, counting the probes it takes into workProbes.
+    private KVPair find(String key) {
+        int loc;
+        for (int which = 0; which < 2; which++) {
+            workProbes++;
+            loc = index(which, key);
+            if (tables[which][loc] != null && tables[which][loc].getKey().equals(key)) {
+                return tables[which][loc];
+            }
+        }
+        for (int i = 0; i < STASH_SIZE && stashCount > 0; i++) {
+            if (stash[i] != null) {
+                workProbes++;
+                if (stash[i].getKey().equals(key)) {
+                    return stash[i];
+                }
+            }
+        }
+        return null;
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Default constructor. Initializes both internal arrays with a size equal to the starting value of {@link PrimeGenerator}.
+     */
+    public CuckooHashTable() {
+        primeGenerator = new PrimeGenerator();
+        tables[0] = new KVPair[primeGenerator.getCurrPrime()];
+        tables[1] = new KVPair[primeGenerator.getCurrPrime()];
+        stashCount = 0;
+        count = 0;
+    }
+
+    @Override
+    public Probes put(String key, String value) {
+        KVPair pair;
+        KVPair homeless;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        workProbes = 0;
+        pair = find(key);
+        if (pair != null) {
+            pair.setValue(value);
+            return new Probes(value, workProbes);
+        }
+
+        if (5 * (count + 1) > 2 * capacity()) {
+            rebuild(primeGenerator.getNextPrime(), null);
+        }
+        count++;
+        homeless = place(new KVPair(key, value));
+        if (homeless != null && !addToStash(homeless)) {
+            rebuild(tables[0].length, homeless);    // count already includes homeless, which is passed as extra.
+        }
+        return new Probes(value, workProbes);
+    }
+
+    /**
+     * Grows both arrays, in a single step, to the first prime length that keeps the given number of entries within
+     * 40&#37; of the capacity.
+     * @param entries The number of entries the table should be able to hold without resizing.
+     * @return The number of probes made by re-inserting the current entries.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int length = tables[0].length;
+        if (5 * entries <= 2 * capacity()) {
+            return 0;
+        }
+        while (5 * entries > 4 * length) {
+            length = primeGenerator.getNextPrime();
+        }
+        workProbes = 0;
+        rebuild(length, null);
+        return workProbes;
+    }
+
+    @Override
+    public Probes get(String key) {
+        KVPair pair;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        workProbes = 0;
+        pair = find(key);
+        return new Probes((pair == null) ? null : pair.getValue(), workProbes);
+    }
+
+    @Override
+    public String lookup(String key) {
+        KVPair pair = (key == null) ? null : pairOf(key);
+        return (pair == null) ? null : pair.getValue();
+    }
+
+    @Override
+    public Probes remove(String key) {
+        int loc;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        workProbes = 0;
+        for (int which = 0; which < 2; which++) {
+            workProbes++;
+            loc = index(which, key);
+            if (tables[which][loc] != null && tables[which][loc].getKey().equals(key)) {
+                value = tables[which][loc].getValue();
+                tables[which][loc] = null;
+                count--;
+                return new Probes(value, workProbes);
+            }
+        }
+        for (int i = 0; i < STASH_SIZE && stashCount > 0; i++) {
+            if (stash[i] != null) {
+                workProbes++;
+                if (stash[i].getKey().equals(key)) {
+                    value = stash[i].getValue();
+                    stash[i] = null;
+                    stashCount--;
+                    count--;
+                    return new Probes(value, workProbes);
+                }
+            }
+        }
+        return new Probes(null, workProbes);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && find(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (KVPair[] table : tables) {
+                for (KVPair pair : table) {
+                    if (pair != null && pair.getValue().equals(value)) {
+                        return true;
+                    }
+                }
+            }
+            for (KVPair pair : stash) {
+                if (pair != null && pair.getValue().equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (KVPair[] table : tables) {
+            for (KVPair pair : table) {
+                if (pair != null) {
+                    action.accept(pair.getKey(), pair.getValue());
+                }
+            }
+        }
+        for (KVPair pair : stash) {
+            if (pair != null) {
+                action.accept(pair.getKey(), pair.getValue());
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the <b>capacity</b> of this {@link CuckooHashTable}, i.e the number of cells in <b>both</b> of its arrays.
+     * The stash is not included.
+     * @return the number of cells in the table.
+     */
+    @Override
+    public int capacity() {
+        return 2 * tables[0].length;
+    }
+}
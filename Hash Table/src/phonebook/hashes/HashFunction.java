@@ -0,0 +1,105 @@
+package phonebook.hashes;
+
+import java.security.SecureRandom;
+
+/**
+ * <p>{@link HashFunction} is the strategy through which our hash tables turn a {@link String} key into a
+ * hash code, before their {@link CapacityPolicy} maps that hash code to a cell. Two kinds are provided: </p>
+ * <ol>
+ *     <li>{@link #STRING_HASH_CODE}, which is {@link String#hashCode()} itself. This is the default for all of our
+ *     hash tables, and the one the probe counts in the writeup assume. It is fast, but it is a polynomial over the
+ *     characters of the key, so that keys which only differ in their last characters, like consecutive phone
+ *     numbers, get consecutive hash codes and end up in one long cluster. It is also trivial to find many keys
+ *     with the same hash code (&quot;Aa&quot; and &quot;BB&quot;, and all their concatenations), which lets an
+ *     adversary degrade any table to linear time.</li>
+ *     <li>{@link #murmur3(int)}, the 32-bit MurmurHash3 over the characters of the key, starting from a
+ *     <b>seed</b>. Every bit of the key influences every bit of the hash code, so neighbouring keys are scattered
+ *     all over the table, and, as long as the seed is kept secret, there is no way to tell in advance which keys
+ *     collide. {@link #seeded()} draws that seed at random, so that every table gets its own.</li>
+ * </ol>
+ *
+ * <p>Keys are hashed with the same {@link HashFunction} for the whole life of a table, resizings included.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see CapacityPolicy
+ * @see OpenAddressingHashTable
+ * @see SeparateChainingHashTable
+ */
+@FunctionalInterface
+public interface HashFunction {
+
+    /**
+     * {@link String#hashCode()}.
+     */
+    HashFunction STRING_HASH_CODE = String::hashCode;
+
+    /**
+     * Hashes a key.
+     * @param key A non-{@code null} key.
+     * @return The hash code of key. It may be negative.
+     */
+    int hash(String key);
+
+    /**
+     * Returns the 32-bit MurmurHash3 over the characters of a key, two of them per block, the same as hashing
+     * the UTF-16LE bytes of the key.
+     * @param seed The seed to start from. Different seeds give unrelated hash functions.
+     * @return A {@link HashFunction}.
+     */
+    static HashFunction murmur3(int seed) {
+        return key -> Murmur3.hash(key, seed);
+    }
+
+    /**
+     * Returns {@link #murmur3(int)} with a random seed, drawn from a {@link SecureRandom}.
+     * @return A {@link HashFunction} that nobody can predict the collisions of.
+     */
+    static HashFunction seeded() {
+        return murmur3(Murmur3.SEEDS.nextInt());
+    }
+
+    /**
+     * The arithmetic behind {@link #murmur3(int)}.
+     */
+    final class Murmur3 {
+
+        private static final SecureRandom SEEDS = new SecureRandom();
+        private static final int C1 = 0xcc9e2d51;
+        private static final int C2 = 0x1b873593;
+
+        private Murmur3() {
+        }
+
+        private static int mixK(int k) {
+            k *= C1;
+            k = Integer.rotateLeft(k, 15);
+            return k * C2;
+        }
+
+        private static int mixH(int h, int k) {
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            return h * 5 + 0xe6546b64;
+        }
+
+        static int hash(String key, int seed) {
+            int h = seed;
+            int length = key.length();
+
+            for (int i = 1; i < length; i += 2) {
+                h = mixH(h, mixK(key.charAt(i - 1) | (key.charAt(i) << 16)));
+            }
+            if ((length & 1) == 1) {
+                h ^= mixK(key.charAt(length - 1));
+            }
+            h ^= 2 * length;    // The length in bytes.
+            h ^= h >>> 16;      // The same finalizer as in OpenAddressingHashTable#index(int, int).
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h;
+        }
+    }
+}
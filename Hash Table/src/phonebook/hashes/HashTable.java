@@ -1,5 +1,7 @@
 package phonebook.hashes;
 
+import java.util.function.BiConsumer;
+
 import phonebook.utils.Probes;
 
 /**
@@ -34,6 +36,53 @@ public interface HashTable {
      */
     Probes put(String key, String value);
 
+    /**
+     * Inserts all the pairs &lt;keys[i], values[i]&gt; into this, in order, exactly as if {@link #put(String, String)}
+     * had been called for each of them, but first makes room for all of them at once through
+     * {@link #ensureCapacity(int)}, so that no resizing takes place in between.
+     * @param keys The records' keys.
+     * @param values The records' values, in the same order as their keys.
+     * @throws IllegalArgumentException if either array or any of their elements is {@code null}, or if the arrays
+     * have different lengths. Nothing is inserted in that case.
+     * @return The total number of probes made.
+     */
+    default int putAll(String[] keys, String[] values) {
+        int probeCount;
+        if (keys == null || values == null || keys.length != values.length) {
+            throw new IllegalArgumentException("putAll(): Expected two arrays of the same length.");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null || values[i] == null) {
+                throw new IllegalArgumentException("putAll(): Found a null key or value at index " + i + ".");
+            }
+        }
+        probeCount = ensureCapacity(size() + keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            probeCount += put(keys[i], values[i]).getProbes();
+        }
+        return probeCount;
+    }
+
+    /**
+     * Makes sure that this can hold the given number of entries without any further resizing. Tables that do not
+     * resize on insertion need not do anything, which is what this default implementation does.
+     * @param entries The number of entries this should be able to hold.
+     * @return The number of probes made while resizing, 0 if no resizing was needed.
+     */
+    default int ensureCapacity(int entries) {
+        return 0;
+    }
+
+    /**
+     * Rehashes this in place, without changing its capacity, to get rid of the tombstones left behind by soft
+     * deletions. Tables that never leave tombstones behind need not do anything, which is what this default
+     * implementation does.
+     * @return The number of probes made while rehashing, 0 if there was nothing to get rid of.
+     */
+    default int compact() {
+        return 0;
+    }
+
     /**
      * Get the value associated with key in the {@link HashTable}. This method is expected to run in <em>amortized constant time</em>.
      * @param key The key to search for.
@@ -42,6 +91,18 @@ public interface HashTable {
      */
     Probes get(String key);
 
+    /**
+     * Get the value associated with key in the {@link HashTable}, exactly like {@link #get(String)}, but without
+     * counting probes. This is the lookup that {@link phonebook.Phonebook} uses on its read path, so implementations
+     * should not allocate anything; this default implementation, which unwraps {@link #get(String)}, allocates a
+     * {@link Probes} per call. {@link #get(String)} remains the method to use for diagnostics.
+     * @param key The key to search for.
+     * @return The value associated with key, or {@code null} if key is {@code null} or not in the {@link HashTable}.
+     */
+    default String lookup(String key) {
+        return (key == null) ? null : get(key).getValue();
+    }
+
     /**
      * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> the {@link phonebook.utils.KVPair} from the table.
      * This method is expected to run in <em>amortized constant time</em>.
@@ -67,6 +128,13 @@ public interface HashTable {
      */
     boolean containsValue(String value);
 
+    /**
+     * Performs the given action on every record of this {@link HashTable}, in no particular order. This method is
+     * expected to run in <em>linear time</em>. The action should not modify this.
+     * @param action The action to perform, given the key and the value of every record.
+     */
+    void forEach(BiConsumer<String, String> action);
+
     /**
      * Returns the number of records in this {@link HashTable}. Please note that this is <b>not</b> the same as returning the hash table's <b>capacity</b>
      * in Open Addressing collision resolution schemes (like Linear Probing)!
@@ -0,0 +1,92 @@
+package phonebook.hashes;
+
+/**
+ * <p>The JMX management interface of an {@link InstrumentedHashTable}, as registered by
+ * {@link InstrumentedHashTable#register(String)}. Every attribute is read from an
+ * {@link InstrumentedHashTable#metrics()} snapshot, so that monitoring tools like JConsole can plot them over time.
+ * Reading an attribute takes constant time, except for {@link #getTombstoneRatio()} and {@link #getMaxClusterLength()},
+ * which scan the table; a scan is reused by the two for up to a second, so that a tool polling every attribute scans
+ * the table at most once per poll.</p>
+ *
+ * @author Yosefe Eshete
+ * @see InstrumentedHashTable
+ * @see InstrumentedHashTable.Metrics
+ */
+public interface HashTableMetricsMXBean {
+
+    /**
+     * @return The simple name of the class of the measured {@link HashTable}.
+     */
+    String getImplementation();
+
+    /**
+     * @return The number of entries in the measured {@link HashTable}.
+     */
+    int getSize();
+
+    /**
+     * @return The capacity of the measured {@link HashTable}.
+     */
+    int getCapacity();
+
+    /**
+     * @return The size of the measured {@link HashTable} divided by its capacity.
+     */
+    double getLoadFactor();
+
+    /**
+     * @return The fraction of the cells of the measured {@link HashTable} that hold tombstones.
+     */
+    double getTombstoneRatio();
+
+    /**
+     * @return The length of the longest cluster of the measured {@link HashTable}.
+     */
+    int getMaxClusterLength();
+
+    /**
+     * @return The number of {@link HashTable#get(String)}, {@link HashTable#put(String, String)} and
+     * {@link HashTable#remove(String)} calls measured.
+     */
+    long getOperations();
+
+    /**
+     * @return The average number of probes of the measured operations.
+     */
+    double getMeanProbes();
+
+    /**
+     * @return An upper bound of the 99th percentile of the probes of the measured operations.
+     */
+    long getP99Probes();
+
+    /**
+     * @return The largest number of probes of a measured operation.
+     */
+    long getMaxProbes();
+
+    /**
+     * @return The average latency of the measured operations, in nanoseconds.
+     */
+    double getMeanLatencyNanos();
+
+    /**
+     * @return An upper bound of the 99th percentile of the latencies of the measured operations, in nanoseconds.
+     */
+    long getP99LatencyNanos();
+
+    /**
+     * @return The number of times the capacity of the measured {@link HashTable} has changed.
+     */
+    long getResizes();
+
+    /**
+     * @return The total latency of the operations that changed the capacity, in nanoseconds.
+     */
+    long getResizeNanos();
+
+    /**
+     * Forgets every operation measured so far.
+     */
+    void resetStatistics();
+}
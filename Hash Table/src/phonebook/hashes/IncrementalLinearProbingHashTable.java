@@ -0,0 +1,399 @@
+package phonebook.hashes;
+
+import java.util.function.BiConsumer;
+
+import phonebook.utils.KVPair;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link IncrementalLinearProbingHashTable} is a {@link LinearProbingHashTable} variant that resizes
+ * <b>incrementally</b>. When {@link LinearProbingHashTable} resizes, a single {@link #put(String, String)} call has to
+ * re-insert every key of the table, and its latency (and its {@link Probes} count) spikes accordingly. Here, a resizing
+ * only allocates the new array. The old one is kept next to it, and every subsequent {@link #put(String, String)} and
+ * {@link #remove(String)} moves at most {@link #MIGRATION_STEP} of its cells over, until it is empty and can be dropped.
+ * In the meantime, insertions go to the new array and searches consult <b>both</b>.</p>
+ *
+ * <p>Since a resizing starts when the table is half full and the new array is about twice as large, moving
+ * {@link #MIGRATION_STEP} cells per operation always finishes the migration well before the new array fills up in turn.
+ * Inserting a key that already exists <b>updates</b> its value. Hard deletion shifts the rest of the cluster back
+ * instead of re-inserting it. Soft deletion leaves tombstones that later insertions reuse, and that are
+ * {@link #compact() compacted} away once they take up more than {@link OpenAddressingHashTable#MAX_TOMBSTONE_RATIO}
+ * of the new array.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see CollisionResolver
+ */
+public class IncrementalLinearProbingHashTable extends OpenAddressingHashTable {
+
+    /**
+     * The maximum number of cells of the old array that a single operation migrates to the new one.
+     */
+    public static final int MIGRATION_STEP = 8;
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    private KVPair[] oldTable;  // null unless we are in the middle of a resizing.
+    private int migrated;       // Cells of oldTable that have been moved over.
+
+    // Returns the cell of t that holds key, or -(number of probes) if key is not in t.
+    private int find(KVPair[] t, String key) {
+        int loc = index(hashOf(key), t.length);
+        int cell;
+        for (int i = 0; i < t.length; i++) {
+            cell = linearProbe(loc, i, t.length);
+            if (t[cell] == null) {
+                return -(i + 1);
+            }
+            if (t[cell] != TOMBSTONE && t[cell].getKey().equals(key)) {
+                return cell;
+            }
+        }
+        return -t.length;
+    }
+
+    // Number of probes it took to reach cell in t, starting from the home cell of key.
+    private int distance(KVPair[] t, String key, int cell) {
+        return ((cell - index(hashOf(key), t.length) + t.length) % t.length) + 1;
+    }
+
+    // Places a key that is known not to be in the new array in its first empty cell. Returns the probes made.
+    private int place(KVPair pair) {
+        int loc = hash(pair.getKey());
+        int cell;
+        for (int i = 0; i < table.length; i++) {
+            cell = linearProbe(loc, i, table.length);
+            if (table[cell] == null) {
+                table[cell] = pair;
+                occupied++;
+                return i + 1;
+            }
+        }
+        throw new IllegalStateException("place(): No empty cell in a table of capacity " + table.length + ".");
+    }
+
+    // Moves up to cells cells of the old array to the new one. Returns the probes made.
+    private int migrate(int cells) {
+        int probeCount = 0;
+        while (oldTable != null && cells > 0) {
+            if (migrated == oldTable.length) {
+                oldTable = null;
+                break;
+            }
+            probeCount++;
+            if (oldTable[migrated] != null && oldTable[migrated] != TOMBSTONE) {
+                probeCount += place(oldTable[migrated]);
+                // Not null: keys further down the old array may have probed past this cell.
+                oldTable[migrated] = TOMBSTONE;
+            }
+            migrated++;
+            cells--;
+        }
+        return probeCount;
+    }
+
+    private void startResize() {
+        if (oldTable != null) {
+            migrate(oldTable.length);
+        }
+        oldTable = table;
+        migrated = 0;
+        table = new KVPair[nextCapacity()];
+        occupied = 0;
+    }
+
+    // Hard deletion in the new array: shift the rest of the cluster back over the hole. Returns the probes made.
+    private int shiftBack(int hole) {
+        int probeCount = 1;
+        int loc = linearProbe(hole, 1, table.length);
+        int home;
+        while (table[loc] != null) {
+            probeCount++;
+            home = hash(table[loc].getKey());
+            if ((loc > hole) ? (home <= hole || home > loc) : (home <= hole && home > loc)) {
+                table[hole] = table[loc];
+                table[loc] = null;
+                hole = loc;
+            }
+            loc = linearProbe(loc, 1, table.length);
+        }
+        return probeCount;
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Constructor with soft deletion option. Initializes the internal storage with a size equal to the starting value of  {@link PrimeGenerator}.
+     *
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *             we want soft deletion, {@code false} otherwise.
+     */
+    public IncrementalLinearProbingHashTable(boolean soft) {
+        this(soft, CapacityPolicy.PRIME);
+    }
+
+    /**
+     * Constructor with soft deletion and capacity policy options. Initializes the internal storage with the initial capacity
+     * of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     */
+    public IncrementalLinearProbingHashTable(boolean soft, CapacityPolicy policy) {
+        this(soft, policy, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with soft deletion, capacity policy and hash function options. Initializes the internal storage with the
+     * initial capacity of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public IncrementalLinearProbingHashTable(boolean soft, CapacityPolicy policy, HashFunction hashFunction) {
+        primeGenerator = new PrimeGenerator();
+        capacityPolicy = policy;
+        this.hashFunction = hashFunction;
+        table = new KVPair[initialCapacity()];
+        softFlag = soft;
+        count = 0;
+        occupied = 0;
+        oldTable = null;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, or updates the value of key if it is already in this. Before
+     * doing so, moves up to {@link #MIGRATION_STEP} cells over from the old array, if a resizing is in progress.
+     * When the new array becomes half full, a new resizing starts.
+     *
+     * @param key   The record's key.
+     * @param value The record's value.
+     * @return The {@link phonebook.utils.Probes} with the value added and the number of probes it makes, including the
+     * ones made by the migration.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        int loc;
+        int cell;
+        int tombstone = -1;    // The first tombstone on the probe sequence of key, if any.
+        int probeCount;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        probeCount = migrate(MIGRATION_STEP);
+        if (oldTable != null) {
+            cell = find(oldTable, key);
+            if (cell >= 0) {
+                // Move it over now, so that the key lives in a single array.
+                probeCount += distance(oldTable, key, cell);
+                oldTable[cell] = TOMBSTONE;
+                count--;
+            } else {
+                probeCount -= cell;
+            }
+        }
+
+        loc = hash(key);
+        for (int i = 0; i < table.length; i++) {
+            probeCount++;
+            cell = linearProbe(loc, i, table.length);
+            if (table[cell] == null) {
+                if (tombstone >= 0) {
+                    // key is not in the table, so it can take the place of the first tombstone we saw.
+                    table[tombstone] = new KVPair(key, value);
+                } else {
+                    table[cell] = new KVPair(key, value);
+                    occupied++;
+                }
+                count++;
+                break;
+            }
+            if (table[cell] == TOMBSTONE) {
+                if (tombstone < 0) {
+                    tombstone = cell;
+                }
+            } else if (table[cell].getKey().equals(key)) {
+                table[cell].setValue(value);
+                break;
+            }
+        }
+
+        if (2 * occupied >= table.length) {
+            startResize();
+        }
+        return new Probes(value, probeCount);
+    }
+
+    /**
+     * Finishes any resizing in progress, and then grows the table in a single step, like
+     * {@link OpenAddressingHashTable#ensureCapacity(int)} does.
+     * @param entries The number of entries the table should be able to hold without resizing.
+     * @return The number of probes made by moving the current entries.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int probeCount = (oldTable == null) ? 0 : migrate(oldTable.length - migrated + 1);
+        return probeCount + super.ensureCapacity(entries);
+    }
+
+    /**
+     * Finishes any resizing in progress, and then rehashes the new array in place to get rid of its tombstones.
+     * @return The number of probes made by moving the entries.
+     */
+    @Override
+    public int compact() {
+        int probeCount = (oldTable == null) ? 0 : migrate(oldTable.length - migrated + 1);
+        return probeCount + super.compact();
+    }
+
+    @Override
+    public Probes get(String key) {
+        int cell;
+        int probeCount;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        cell = find(table, key);
+        if (cell >= 0) {
+            return new Probes(table[cell].getValue(), distance(table, key, cell));
+        }
+        probeCount = -cell;
+        if (oldTable != null) {
+            cell = find(oldTable, key);
+            if (cell >= 0) {
+                return new Probes(oldTable[cell].getValue(), probeCount + distance(oldTable, key, cell));
+            }
+            probeCount -= cell;
+        }
+        return new Probes(null, probeCount);
+    }
+
+    @Override
+    public String lookup(String key) {
+        int cell;
+
+        if (key == null) {
+            return null;
+        }
+        cell = find(table, key);
+        if (cell >= 0) {
+            return table[cell].getValue();
+        }
+        if (oldTable != null) {
+            cell = find(oldTable, key);
+            if (cell >= 0) {
+                return oldTable[cell].getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Probes remove(String key) {
+        int cell;
+        int probeCount;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        probeCount = migrate(MIGRATION_STEP);
+        cell = find(table, key);
+        if (cell >= 0) {
+            probeCount += distance(table, key, cell);
+            value = table[cell].getValue();
+            count--;
+            if (softFlag) {
+                table[cell] = TOMBSTONE;
+                probeCount += compactIfNeeded();
+            } else {
+                table[cell] = null;
+                occupied--;
+                probeCount += shiftBack(cell);
+            }
+            return new Probes(value, probeCount);
+        }
+        probeCount -= cell;
+        if (oldTable != null) {
+            cell = find(oldTable, key);
+            if (cell >= 0) {
+                // The old array is on its way out, so a tombstone is fine even under hard deletion.
+                probeCount += distance(oldTable, key, cell);
+                value = oldTable[cell].getValue();
+                oldTable[cell] = TOMBSTONE;
+                count--;
+                return new Probes(value, probeCount);
+            }
+            probeCount -= cell;
+        }
+        return new Probes(null, probeCount);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && (find(table, key) >= 0 || (oldTable != null && find(oldTable, key) >= 0));
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (KVPair[] t : new KVPair[][]{table, oldTable}) {
+                for (int i = 0; t != null && i < t.length; i++) {
+                    if (t[i] != null && t[i] != TOMBSTONE && t[i].getValue().equals(value)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Performs the given action on every record, in both the new and the old array.
+     * @param action The action to perform, given the key and the value of every record.
+     */
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (KVPair[] t : new KVPair[][]{table, oldTable}) {
+            for (int i = 0; t != null && i < t.length; i++) {
+                if (t[i] != null && t[i] != TOMBSTONE) {
+                    action.accept(t[i].getKey(), t[i].getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the capacity of the <b>new</b> array. While a resizing is in progress, some keys still live in the old one.
+     * @return the number of cells in the table that insertions go to.
+     */
+    @Override
+    public int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Queries this table about whether a resizing is in progress.
+     * @return {@code true} if, and only if, some cells of the previous array have not been migrated yet.
+     */
+    public boolean isResizing() {
+        return oldTable != null;
+    }
+}
@@ -0,0 +1,511 @@
+package phonebook.hashes;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import phonebook.utils.Histogram;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link InstrumentedHashTable} is a {@link HashTable} that <b>decorates</b> another one: every call is forwarded
+ * to the decorated table unchanged, and {@link #get(String)}, {@link #put(String, String)} and {@link #remove(String)}
+ * are also measured. For every kind of {@link Operation}, it keeps a {@link Histogram} of the {@link Probes} it
+ * took and one of its latency in nanoseconds. It also counts the calls which changed the capacity of the table,
+ * and how long they took.</p>
+ *
+ * <p>{@link #metrics()} takes a {@link Metrics} snapshot of all of the above, along with the <b>shape</b> of the
+ * table: its load factor, its ratio of tombstones and its longest cluster. The two latter are computed by scanning
+ * the table, and only for the tables that extend {@link OpenAddressingHashTable}; they are what tells a table that
+ * has merely filled up from one whose clusters have grown long, as {@link LinearProbingHashTable}'s do under
+ * clustered keys or many soft deletions, before the probes (and then the latencies) show it.
+ * {@link #register(String)} exposes the same snapshot over JMX, as a {@link HashTableMetricsMXBean}.</p>
+ *
+ * <p>The decorated table should only be used through its {@link InstrumentedHashTable}, and like every other
+ * {@link HashTable}, by one thread at a time. {@link #metrics()}, however, can be called from any thread, e.g
+ * by a JMX client, while that thread is using the table; the shape of the table is then read without
+ * synchronization, and is only as accurate as a racy scan can be.</p>
+ *
+ * @author Yosefe Eshete
+ * @see HashTable
+ * @see HashTableMetricsMXBean
+ * @see Histogram
+ */
+public class InstrumentedHashTable implements HashTable {
+
+    /**
+     * The operations that an {@link InstrumentedHashTable} measures.
+     */
+    public enum Operation {
+        /** {@link HashTable#get(String)} */
+        GET,
+        /** {@link HashTable#put(String, String)} */
+        PUT,
+        /** {@link HashTable#remove(String)} */
+        REMOVE
+    }
+
+    /**
+     * <p>An immutable snapshot of the metrics of an {@link InstrumentedHashTable}, as taken by
+     * {@link InstrumentedHashTable#metrics()}. Probes and latencies are aggregated over all kinds of {@link Operation};
+     * use {@link InstrumentedHashTable#probes(Operation)} and {@link InstrumentedHashTable#latencies(Operation)}
+     * for the histogram of a single kind.</p>
+     */
+    public static final class Metrics {
+
+        private final String implementation;
+        private final int size;
+        private final int capacity;
+        private final int tombstones;
+        private final int maxClusterLength;
+        private final long operations;
+        private final double meanProbes;
+        private final long p99Probes;
+        private final long maxProbes;
+        private final double meanLatencyNanos;
+        private final long p99LatencyNanos;
+        private final long maxLatencyNanos;
+        private final long resizes;
+        private final long resizeNanos;
+
+        // Scans the table for its shape only if scan is true, and leaves tombstones and maxClusterLength at 0 otherwise.
+        private Metrics(InstrumentedHashTable instrumented, boolean scan) {
+            HashTable table = instrumented.table;
+            Histogram probes = new Histogram();
+            Histogram latencies = new Histogram();
+            for (Operation operation : Operation.values()) {
+                probes.add(instrumented.probes(operation));
+                latencies.add(instrumented.latencies(operation));
+            }
+            implementation = table.getClass().getSimpleName();
+            size = table.size();
+            capacity = table.capacity();
+            if (scan && table instanceof OpenAddressingHashTable) {
+                tombstones = ((OpenAddressingHashTable) table).tombstones();
+                maxClusterLength = ((OpenAddressingHashTable) table).maxClusterLength();
+            } else {
+                tombstones = 0;
+                maxClusterLength = 0;
+            }
+            operations = probes.count();
+            meanProbes = probes.mean();
+            p99Probes = probes.percentile(0.99);
+            maxProbes = probes.max();
+            meanLatencyNanos = latencies.mean();
+            p99LatencyNanos = latencies.percentile(0.99);
+            maxLatencyNanos = latencies.max();
+            resizes = instrumented.resizes.sum();
+            resizeNanos = instrumented.resizeNanos.sum();
+        }
+
+        /**
+         * @return The simple name of the class of the measured {@link HashTable}.
+         */
+        public String getImplementation() {
+            return implementation;
+        }
+
+        /**
+         * @return The number of entries in the measured {@link HashTable}.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return The capacity of the measured {@link HashTable}.
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * @return The size of the measured {@link HashTable} divided by its capacity.
+         */
+        public double getLoadFactor() {
+            return (capacity == 0) ? 0 : (double) size / capacity;
+        }
+
+        /**
+         * @return The number of tombstones in the measured {@link HashTable}, which is always 0 unless it is an
+         * {@link OpenAddressingHashTable}.
+         */
+        public int getTombstones() {
+            return tombstones;
+        }
+
+        /**
+         * @return The fraction of the cells of the measured {@link HashTable} that hold tombstones.
+         */
+        public double getTombstoneRatio() {
+            return (capacity == 0) ? 0 : (double) tombstones / capacity;
+        }
+
+        /**
+         * @return The length of the longest run of consecutive occupied cells of the measured {@link HashTable},
+         * which is always 0 unless it is an {@link OpenAddressingHashTable}.
+         * @see OpenAddressingHashTable#maxClusterLength()
+         */
+        public int getMaxClusterLength() {
+            return maxClusterLength;
+        }
+
+        /**
+         * @return The number of operations measured.
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * @return The average number of probes of the measured operations.
+         */
+        public double getMeanProbes() {
+            return meanProbes;
+        }
+
+        /**
+         * @return An upper bound of the 99th percentile of the probes of the measured operations.
+         * @see Histogram#percentile(double)
+         */
+        public long getP99Probes() {
+            return p99Probes;
+        }
+
+        /**
+         * @return The largest number of probes of a measured operation.
+         */
+        public long getMaxProbes() {
+            return maxProbes;
+        }
+
+        /**
+         * @return The average latency of the measured operations, in nanoseconds.
+         */
+        public double getMeanLatencyNanos() {
+            return meanLatencyNanos;
+        }
+
+        /**
+         * @return An upper bound of the 99th percentile of the latencies of the measured operations, in nanoseconds.
+         * @see Histogram#percentile(double)
+         */
+        public long getP99LatencyNanos() {
+            return p99LatencyNanos;
+        }
+
+        /**
+         * @return The largest latency of a measured operation, in nanoseconds.
+         */
+        public long getMaxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+
+        /**
+         * @return The number of calls that changed the capacity of the measured {@link HashTable}.
+         */
+        public long getResizes() {
+            return resizes;
+        }
+
+        /**
+         * @return The total latency of the calls that changed the capacity of the measured {@link HashTable},
+         * in nanoseconds.
+         */
+        public long getResizeNanos() {
+            return resizeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return implementation + "{size=" + size + ", capacity=" + capacity + ", tombstones=" + tombstones +
+                    ", maxClusterLength=" + maxClusterLength + ", operations=" + operations +
+                    ", meanProbes=" + meanProbes + ", p99Probes=" + p99Probes + ", maxProbes=" + maxProbes +
+                    ", meanLatencyNanos=" + meanLatencyNanos + ", p99LatencyNanos=" + p99LatencyNanos +
+                    ", resizes=" + resizes + ", resizeNanos=" + resizeNanos + "}";
+        }
+    }
+
+    // Reads every attribute from a snapshot. Kept apart from InstrumentedHashTable, so that the latter
+    // does not have to expose JMX-style getters next to the methods of HashTable.
+    private static final class Bean implements HashTableMetricsMXBean {
+
+        // A JMX client reads the attributes it shows one by one. Those that need a scan of the table, and are read
+        // within this time of each other, share a single one.
+        private static final long SHAPE_TTL_NANOS = 1_000_000_000L;
+
+        private final InstrumentedHashTable instrumented;
+        private volatile Metrics shape;
+        private volatile long shapeTime;
+
+        private Bean(InstrumentedHashTable instrumented) {
+            this.instrumented = instrumented;
+        }
+
+        // Every attribute but the shape of the table, which takes constant time.
+        private Metrics counters() {
+            return new Metrics(instrumented, false);
+        }
+
+        private Metrics shape() {
+            Metrics current = shape;
+            long now = System.nanoTime();
+            if (current == null || now - shapeTime > SHAPE_TTL_NANOS) {
+                current = instrumented.metrics();
+                shapeTime = now;
+                shape = current;
+            }
+            return current;
+        }
+
+        @Override
+        public String getImplementation() {
+            return counters().getImplementation();
+        }
+
+        @Override
+        public int getSize() {
+            return counters().getSize();
+        }
+
+        @Override
+        public int getCapacity() {
+            return counters().getCapacity();
+        }
+
+        @Override
+        public double getLoadFactor() {
+            return counters().getLoadFactor();
+        }
+
+        @Override
+        public double getTombstoneRatio() {
+            return shape().getTombstoneRatio();
+        }
+
+        @Override
+        public int getMaxClusterLength() {
+            return shape().getMaxClusterLength();
+        }
+
+        @Override
+        public long getOperations() {
+            return counters().getOperations();
+        }
+
+        @Override
+        public double getMeanProbes() {
+            return counters().getMeanProbes();
+        }
+
+        @Override
+        public long getP99Probes() {
+            return counters().getP99Probes();
+        }
+
+        @Override
+        public long getMaxProbes() {
+            return counters().getMaxProbes();
+        }
+
+        @Override
+        public double getMeanLatencyNanos() {
+            return counters().getMeanLatencyNanos();
+        }
+
+        @Override
+        public long getP99LatencyNanos() {
+            return counters().getP99LatencyNanos();
+        }
+
+        @Override
+        public long getResizes() {
+            return counters().getResizes();
+        }
+
+        @Override
+        public long getResizeNanos() {
+            return counters().getResizeNanos();
+        }
+
+        @Override
+        public void resetStatistics() {
+            instrumented.reset();
+        }
+    }
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    private final HashTable table;
+    private final Histogram[] probes = new Histogram[Operation.values().length];
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+    private final LongAdder resizes = new LongAdder();
+    private final LongAdder resizeNanos = new LongAdder();
+    private ObjectName name;    // Non-null while registered with JMX.
+
+    // Records an operation that started at the given time, when the table had the given capacity.
+    private Probes record(Operation operation, Probes result, long start, int capacityBefore) {
+        long elapsed = System.nanoTime() - start;
+        probes[operation.ordinal()].record(result.getProbes());
+        latencies[operation.ordinal()].record(elapsed);
+        if (table.capacity() != capacityBefore) {
+            resizes.increment();
+            resizeNanos.add(elapsed);
+        }
+        return result;
+    }
+
+    /* **************************************** */
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS:  */
+    /* **************************************** */
+
+    /**
+     * Decorates a {@link HashTable}, which should not be used directly afterwards.
+     * @param table The {@link HashTable} to measure.
+     * @throws IllegalArgumentException if table is {@code null}.
+     */
+    public InstrumentedHashTable(HashTable table) {
+        if (table == null)
+            throw new IllegalArgumentException("InstrumentedHashTable(): Provided a null table.");
+        this.table = table;
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = new Histogram();
+            latencies[i] = new Histogram();
+        }
+    }
+
+    @Override
+    public Probes put(String key, String value) {
+        int capacityBefore = table.capacity();
+        long start = System.nanoTime();
+        return record(Operation.PUT, table.put(key, value), start, capacityBefore);
+    }
+
+    @Override
+    public int ensureCapacity(int entries) {
+        int capacityBefore = table.capacity();
+        long start = System.nanoTime();
+        int probeCount = table.ensureCapacity(entries);
+        if (table.capacity() != capacityBefore) {
+            resizes.increment();
+            resizeNanos.add(System.nanoTime() - start);
+        }
+        return probeCount;
+    }
+
+    @Override
+    public int compact() {
+        return table.compact();
+    }
+
+    @Override
+    public Probes get(String key) {
+        int capacityBefore = table.capacity();
+        long start = System.nanoTime();
+        return record(Operation.GET, table.get(key), start, capacityBefore);
+    }
+
+    @Override
+    public Probes remove(String key) {
+        int capacityBefore = table.capacity();
+        long start = System.nanoTime();
+        return record(Operation.REMOVE, table.remove(key), start, capacityBefore);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return table.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        return table.containsValue(value);
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        table.forEach(action);
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public int capacity() {
+        return table.capacity();
+    }
+
+    /**
+     * Returns the live {@link Histogram} of the probes of one kind of {@link Operation}. It keeps changing as the
+     * table is used, and should not be recorded into.
+     * @param operation The kind of operation.
+     * @return The {@link Histogram} of {@link Probes#getProbes()} of every operation of that kind.
+     */
+    public Histogram probes(Operation operation) {
+        return probes[operation.ordinal()];
+    }
+
+    /**
+     * Returns the live {@link Histogram} of the latencies of one kind of {@link Operation}. It keeps changing as the
+     * table is used, and should not be recorded into.
+     * @param operation The kind of operation.
+     * @return The {@link Histogram} of the latencies, in nanoseconds, of every operation of that kind.
+     */
+    public Histogram latencies(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Takes a snapshot of the metrics of the table. This scans the table if it is an {@link OpenAddressingHashTable},
+     * so it takes time linear in its capacity.
+     * @return A new {@link Metrics} instance.
+     */
+    public Metrics metrics() {
+        return new Metrics(this, true);
+    }
+
+    /**
+     * Forgets every operation and resizing measured so far. The shape of the table is not affected.
+     */
+    public void reset() {
+        for (int i = 0; i < probes.length; i++) {
+            probes[i].reset();
+            latencies[i].reset();
+        }
+        resizes.reset();
+        resizeNanos.reset();
+    }
+
+    /**
+     * Registers a {@link HashTableMetricsMXBean} of this table with the platform MBean server, under the name
+     * {@code phonebook:type=HashTable,name=<name>}, replacing any previous registration of this table.
+     * @param name The name to tell this table apart from others, e.g &quot;namesToNumbers&quot;.
+     * @return The {@link ObjectName} of the registered bean.
+     * @throws JMException if another bean is already registered under the same name.
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("phonebook:type=HashTable,name=" + ObjectName.quote(name));
+        unregister();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(this), objectName);
+        this.name = objectName;
+        return objectName;
+    }
+
+    /**
+     * Removes the bean registered by {@link #register(String)}, if any, from the platform MBean server.
+     * @throws JMException if the bean cannot be unregistered.
+     */
+    public synchronized void unregister() throws JMException {
+        if (name != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            name = null;
+        }
+    }
+}
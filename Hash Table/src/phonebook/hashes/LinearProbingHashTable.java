@@ -14,6 +14,14 @@ import phonebook.utils.Probes;
  * inserted without collisions. {@link QuadraticProbingHashTable} is a {@link HashTable} that
  * tries to avoid this problem, albeit sacrificing cache locality.</p>
  *
+ * <p>Under soft deletion, insertions reuse tombstones, and once tombstones take up more than
+ * {@link OpenAddressingHashTable#MAX_TOMBSTONE_RATIO} of the table, {@link #remove(String)} {@link #compact() compacts}
+ * it in place, so that the tombstones of a delete-heavy workload do not lengthen every search.</p>
+ *
+ * <p>Under hard deletion, {@link #remove(String)} closes the hole it leaves with a <b>backward shift</b>: every later
+ * entry of the cluster that could not be found across the hole moves back into it, leaving a new hole behind, in a
+ * single pass over the rest of the cluster. It never allocates, and never resizes the table.</p>
+ *
  * @author Yosefe Eshete
  *
  * @see HashTable
@@ -28,6 +36,41 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
     /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
     /* ********************************************************************/
 
+    // Soft deletion: leaves a tombstone in cell, and compacts the table if there are too many of them.
+    // Returns the probes made by the compaction.
+    private int softDelete(int cell) {
+        table[cell] = TOMBSTONE;
+        count--;
+        return compactIfNeeded();
+    }
+
+    // Hard deletion: empties cell, then walks the rest of its cluster. An entry whose home cell is not between the hole
+    // and itself could not be found across the hole, so it moves back into it and leaves a new hole where it was.
+    // Returns the number of cells inspected after cell.
+    private int backwardShift(int cell) {
+        int hole = cell;
+        int next = cell;
+        int home;
+        int probeCount = 0;
+
+        count--;
+        occupied--;
+        while (true) {
+            next = linearProbe(next, 1, table.length);
+            probeCount++;
+            if (table[next] == null) {
+                break;
+            }
+            home = hash(table[next].getKey());
+            if ((next - home + table.length) % table.length >= (next - hole + table.length) % table.length) {
+                table[hole] = table[next];
+                hole = next;
+            }
+        }
+        table[hole] = null;
+        return probeCount;
+    }
+
     
     /* ******************************************/
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
@@ -41,15 +84,40 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
      *             we want soft deletion, {@code false} otherwise.
      */
     public LinearProbingHashTable(boolean soft) {
-        //throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
+        this(soft, CapacityPolicy.PRIME);
+    }
+
+    /**
+     * Constructor with soft deletion and capacity policy options. Initializes the internal storage with the initial capacity
+     * of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     */
+    public LinearProbingHashTable(boolean soft, CapacityPolicy policy) {
+        this(soft, policy, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with soft deletion, capacity policy and hash function options. Initializes the internal storage with the
+     * initial capacity of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public LinearProbingHashTable(boolean soft, CapacityPolicy policy, HashFunction hashFunction) {
         primeGenerator = new PrimeGenerator();
-        table = new KVPair[primeGenerator.getCurrPrime()];
+        capacityPolicy = policy;
+        this.hashFunction = hashFunction;
+        table = new KVPair[initialCapacity()];
         softFlag = soft; 
 
         for (int i = 0; i < table.length; i++) {
             table[i] = null;
         }
         count = 0; 
+        occupied = 0;
     }
 
     /**
@@ -61,7 +129,8 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
      * constant time</em>.
      * <p>
      * Instances of {@link LinearProbingHashTable} will follow the writeup's guidelines about how to internally resize
-     * the hash table when the capacity exceeds 50&#37;
+     * the hash table when the capacity exceeds 50&#37;. The new pair goes into the first cell of its probe sequence that is
+     * either empty or a tombstone, so that soft deletions make room for later insertions.
      *
      * @param key   The record's key.
      * @param value The record's value.
@@ -81,30 +150,33 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
         }
 
 
-        if (resizeBool) {
+        if (resizeBool && compactInsteadOfResizing()) {
+            probeCount += compact();
+        } else if (resizeBool) {
             table = resize(table);
             probeCount += resizeProbe;
-        } 
+        }
         resizeBool = false;
 
         loc = hash(key); 
         
         for (int i = 0; i < table.length; i++) {
             probeCount++;
-            reLoc = (loc + i) % table.length; 
+            reLoc = linearProbe(loc, i, table.length); 
             if (table[reLoc] == null) {
                 table[reLoc] = new KVPair(key, value);
                 count++;
+                occupied++;
                 break;
             }
-        }
-        loc = 0;
-        for (int i = 0; i < table.length; i++) {
-            if (table[i] != null) {
-                loc++;
+            if (table[reLoc] == TOMBSTONE) {
+                // Reuse the first tombstone on the way; occupied stays the same.
+                table[reLoc] = new KVPair(key, value);
+                count++;
+                break;
             }
         }
-        if ( Double.compare( (double) loc/this.capacity(), 0.5) >= 0 ) {
+        if ( Double.compare( (double) occupied/this.capacity(), 0.5) >= 0 ) {
 
             resizeBool = true;
         }
@@ -124,7 +196,7 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
         if (key != null) {
             loc = hash(key);
             for (int i = 0; i < table.length; i++) {
-                linProbe = (loc + i) % table.length; 
+                linProbe = linearProbe(loc, i, table.length); 
                 if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
                     ret = new Probes(table[linProbe].getValue(), i+1);
                     break;
@@ -139,6 +211,26 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
     }
 
 
+    @Override
+    public String lookup(String key) {
+        int loc;
+        int linProbe;
+
+        if (key != null) {
+            loc = hash(key);
+            for (int i = 0; i < table.length; i++) {
+                linProbe = linearProbe(loc, i, table.length);
+                if (table[linProbe] == null) {
+                    break;
+                }
+                if (table[linProbe] != TOMBSTONE && table[linProbe].getKey().equals(key)) {
+                    return table[linProbe].getValue();
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> the {@link phonebook.utils.KVPair} from the table.
      * If key does not exist in the database
@@ -154,11 +246,6 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
         Probes ret = new Probes(null, 0);
         int loc;
         int linProbe; 
-        int hardCount = 0;
-        String val = null;
-        String keyCopy;
-        String valueCopy;
-
 
         if (key != null) {
 
@@ -166,16 +253,12 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
             if (softFlag) {
                 if (table[loc] != null ) {
                     if (!table[loc].equals(TOMBSTONE) && table[loc].getKey().equals(key)) {
-                        ret = new Probes(table[loc].getValue(), 1);
-                        table[loc] = TOMBSTONE;
-                        count--;
+                        ret = new Probes(table[loc].getValue(), 1 + softDelete(loc));
                     } else {
                         for (int i = 1; i < table.length; i++) {
-                            linProbe = (loc + i) % table.length; 
+                            linProbe = linearProbe(loc, i, table.length); 
                             if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
-                                ret = new Probes(table[linProbe].getValue(), i+1);
-                                table[linProbe] = TOMBSTONE;
-                                count--;
+                                ret = new Probes(table[linProbe].getValue(), i + 1 + softDelete(linProbe));
                                 break;
                             }
                             if (table[linProbe] == null) {
@@ -189,27 +272,16 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
                 }
             } else {
                 for (int i = 0; i < table.length; i++) {
-                    linProbe = (loc + i) % table.length; 
-
+                    linProbe = linearProbe(loc, i, table.length);
                     if (table[linProbe] == null) {
-                        hardCount += i+1;
+                        ret = new Probes(null, i + 1);
                         break;
                     }
-        
-                    if ( table[linProbe] != null && val != null ) {
-                        keyCopy  = table[linProbe].getKey(); 
-                        valueCopy = table[linProbe].getValue();
-                        table[linProbe] = null;
-                        hardCount += this.put(keyCopy, valueCopy).getProbes();
+                    if (table[linProbe].getKey().equals(key)) {
+                        ret = new Probes(table[linProbe].getValue(), i + 1 + backwardShift(linProbe));
+                        break;
                     }
-
-                    if ( table[linProbe] != null && table[linProbe].getKey().equals(key)) {
-                        val = table[linProbe].getValue();
-                        table[linProbe] = null;
-                        count--;
-                    }  
                 }
-                ret = new Probes(val, hardCount);
             }
         }
 
@@ -230,7 +302,7 @@ public class LinearProbingHashTable extends OpenAddressingHashTable {
                         ret = true;
                     } else {
                         for (int i = 1; i < table.length; i++) {
-                            linProbe = (loc + i) % table.length; 
+                            linProbe = linearProbe(loc, i, table.length); 
                             if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
                                 ret = true;
                                 break;
@@ -0,0 +1,329 @@
+package phonebook.hashes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link MappedHashTable} is a <b>read-only</b> {@link HashTable} that lives in a compact binary <b>image</b>,
+ * typically a file mapped into memory through {@link FileChannel#map(FileChannel.MapMode, long, long)}. Searches
+ * run directly against the bytes of the image: nothing is deserialized when the table is opened, so opening a
+ * table of any size takes constant time, and the operating system only pages in the parts of the file that
+ * searches actually touch. Images are made out of any other {@link HashTable} with {@link #toImage(HashTable)}
+ * or {@link #write(HashTable, Path)}.</p>
+ *
+ * <p>An image is an openly addressed table with <b>Linear Probing</b> and a power of two number of slots, at most
+ * half of which are full, followed by a <b>string heap</b> holding every key and value. All numbers are big-endian
+ * {@code int}s:</p>
+ * <pre>
+ *     header:  MAGIC | VERSION | count | slots
+ *     slots:   slots times ( hash | key offset | value offset ), with a key offset of -1 for empty slots
+ *     heap:    ( length in bytes | UTF-8 bytes ) for every string, at the offsets given by the slots
+ * </pre>
+ * <p>The hash of a slot is the top bit masked {@link String#hashCode()} of its key, and offsets are relative to
+ * the start of the heap. A key's home slot is its hash, mixed like {@link CapacityPolicy#POWER_OF_TWO} tables do,
+ * masked by the number of slots. Searches compare the stored hashes first, and then compare the UTF-8 bytes of the
+ * key in place, so the only {@link String} they ever create is the value they return.</p>
+ *
+ * <p>Every method of this class only reads the image through absolute positions, so a {@link MappedHashTable} can be
+ * searched by any number of threads at once. {@link #put(String, String)} and {@link #remove(String)} throw an
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @author Yosefe Eshete
+ * @see HashTable
+ * @see FileChannel#map(FileChannel.MapMode, long, long)
+ * @see phonebook.Phonebook#snapshot(Path)
+ */
+public class MappedHashTable implements HashTable {
+
+    /**
+     * The first {@code int} of every image: the ASCII codes of &quot;PHBT&quot;.
+     */
+    public static final int MAGIC = 0x50484254;
+
+    /**
+     * The version of the image format that this class reads and writes.
+     */
+    public static final int VERSION = 1;
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    private static final int HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 12;
+    private static final int EMPTY = -1;
+
+    private final ByteBuffer image;
+    private final int count;
+    private final int slots;
+    private final int heap;    // Position of the string heap in the image.
+
+    // The MurmurHash3 finalizer, like OpenAddressingHashTable#index for power of two tables.
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private int slot(int i) {
+        return HEADER_BYTES + i * SLOT_BYTES;
+    }
+
+    // Compares the string at the given heap offset with the UTF-8 bytes of a key, without copying it.
+    private boolean matches(int offset, byte[] bytes) {
+        int at = heap + offset;
+        if (image.getInt(at) != bytes.length) {
+            return false;
+        }
+        at += Integer.BYTES;
+        for (int i = 0; i < bytes.length; i++) {
+            if (image.get(at + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int offset) {
+        int at = heap + offset;
+        byte[] bytes = new byte[image.getInt(at)];
+        image.get(at + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Returns the slot holding key, or -(number of probes) if key is not in the image.
+    private int find(String key) {
+        int hash = key.hashCode() & 0x7fffffff;
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int loc = mix(hash) & (slots - 1);
+        int keyOffset;
+        for (int i = 0; i < slots; i++) {
+            keyOffset = image.getInt(slot(loc) + Integer.BYTES);
+            if (keyOffset == EMPTY) {
+                return -(i + 1);
+            }
+            if (image.getInt(slot(loc)) == hash && matches(keyOffset, bytes)) {
+                return loc;
+            }
+            loc = (loc + 1) & (slots - 1);
+        }
+        return -slots;
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Builds the image of a {@link HashTable}, in the format described above.
+     * @param table The table whose records will be in the image.
+     * @return A buffer holding the image, from position 0 to its limit.
+     * @throws IllegalArgumentException if the image would not fit in 2GB, the most a single mapped buffer can hold.
+     */
+    public static ByteBuffer toImage(HashTable table) {
+        // Sized by what forEach() visits rather than by size(), which some tables get wrong after deletions.
+        byte[][][] strings = {new byte[2 * Math.max(8, table.size())][]};
+        int[][] hashes = {new int[Math.max(8, table.size())]};
+        long[] heapBytes = {0};
+        int[] n = {0};
+
+        table.forEach((key, value) -> {
+            if (n[0] == hashes[0].length) {
+                hashes[0] = Arrays.copyOf(hashes[0], 2 * n[0]);
+                strings[0] = Arrays.copyOf(strings[0], 4 * n[0]);
+            }
+            hashes[0][n[0]] = key.hashCode() & 0x7fffffff;
+            strings[0][2 * n[0]] = key.getBytes(StandardCharsets.UTF_8);
+            strings[0][2 * n[0] + 1] = value.getBytes(StandardCharsets.UTF_8);
+            heapBytes[0] += 2 * Integer.BYTES + strings[0][2 * n[0]].length + strings[0][2 * n[0] + 1].length;
+            n[0]++;
+        });
+        int count = n[0];
+        int slots = 8;
+        while (slots < 2L * count && slots < (1 << 30)) {
+            slots <<= 1;    // Images that would need more slots are rejected below, since they cannot be mapped anyway.
+        }
+
+        long total = HEADER_BYTES + (long) slots * SLOT_BYTES + heapBytes[0];
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("toImage(): An image of " + total + " bytes cannot be mapped.");
+        }
+        ByteBuffer image = ByteBuffer.allocate((int) total);
+        image.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(slots);
+        for (int i = 0; i < slots; i++) {
+            image.putInt(0).putInt(EMPTY).putInt(EMPTY);
+        }
+        int heap = image.position();
+        int loc;
+        for (int i = 0; i < count; i++) {
+            loc = mix(hashes[0][i]) & (slots - 1);
+            while (image.getInt(HEADER_BYTES + loc * SLOT_BYTES + Integer.BYTES) != EMPTY) {
+                loc = (loc + 1) & (slots - 1);
+            }
+            image.putInt(HEADER_BYTES + loc * SLOT_BYTES, hashes[0][i]);
+            image.putInt(HEADER_BYTES + loc * SLOT_BYTES + Integer.BYTES, image.position() - heap);
+            image.putInt(strings[0][2 * i].length).put(strings[0][2 * i]);
+            image.putInt(HEADER_BYTES + loc * SLOT_BYTES + 2 * Integer.BYTES, image.position() - heap);
+            image.putInt(strings[0][2 * i + 1].length).put(strings[0][2 * i + 1]);
+        }
+        return image.flip();
+    }
+
+    /**
+     * Writes the image of a {@link HashTable} to a file. The image is first written to a temporary file next to it,
+     * which then replaces the file in a single step, so that a crash in the middle of this method never leaves a
+     * partially written image behind.
+     * @param table The table whose records will be in the file.
+     * @param file The file to (over)write.
+     * @throws IOException if the file cannot be written.
+     * @see #open(Path)
+     */
+    public static void write(HashTable table, Path file) throws IOException {
+        writeAtomically(file, toImage(table));
+    }
+
+    /**
+     * Writes the given buffers to a file, through a temporary file that replaces it once everything is on disk.
+     * @param file The file to (over)write.
+     * @param buffers The contents of the file, from their positions to their limits.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeAtomically(Path file, ByteBuffer... buffers) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a file written by {@link #write(HashTable, Path)} into memory, and opens the table in it.
+     * @param file The file to map.
+     * @return A {@link MappedHashTable} over the file's contents.
+     * @throws IOException if the file cannot be read, or is not a valid image.
+     */
+    public static MappedHashTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            return new MappedHashTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Opens the table in an image, without copying it.
+     * @param image A buffer holding an image, starting at index 0, like the ones returned by {@link #toImage(HashTable)}.
+     * @throws IOException if the buffer does not hold a valid image of this {@link #VERSION}.
+     */
+    public MappedHashTable(ByteBuffer image) throws IOException {
+        if (image.capacity() < HEADER_BYTES || image.getInt(0) != MAGIC) {
+            throw new IOException("Not a hash table image.");
+        }
+        if (image.getInt(4) != VERSION) {
+            throw new IOException("Unsupported image version: " + image.getInt(4) + ".");
+        }
+        this.image = image;
+        count = image.getInt(8);
+        slots = image.getInt(12);
+        if (count < 0 || slots <= 0 || Integer.bitCount(slots) != 1 || 2L * count > slots
+                || HEADER_BYTES + (long) slots * SLOT_BYTES > image.capacity()) {
+            throw new IOException("Corrupt hash table image: " + count + " records in " + slots + " slots.");
+        }
+        heap = HEADER_BYTES + slots * SLOT_BYTES;
+    }
+
+    /**
+     * Always throws, since a {@link MappedHashTable} is read-only.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        throw new UnsupportedOperationException("put(): MappedHashTable is read-only.");
+    }
+
+    @Override
+    public Probes get(String key) {
+        int loc;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        loc = find(key);
+        if (loc < 0) {
+            return new Probes(null, -loc);
+        }
+        return new Probes(string(image.getInt(slot(loc) + 2 * Integer.BYTES)),
+                ((loc - (mix(key.hashCode() & 0x7fffffff) & (slots - 1))) & (slots - 1)) + 1);
+    }
+
+    @Override
+    public String lookup(String key) {
+        int loc = (key == null) ? -1 : find(key);
+        return (loc < 0) ? null : string(image.getInt(slot(loc) + 2 * Integer.BYTES));
+    }
+
+    /**
+     * Always throws, since a {@link MappedHashTable} is read-only.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public Probes remove(String key) {
+        throw new UnsupportedOperationException("remove(): MappedHashTable is read-only.");
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && find(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < slots; i++) {
+                if (image.getInt(slot(i) + Integer.BYTES) != EMPTY
+                        && matches(image.getInt(slot(i) + 2 * Integer.BYTES), bytes)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < slots; i++) {
+            if (image.getInt(slot(i) + Integer.BYTES) != EMPTY) {
+                action.accept(string(image.getInt(slot(i) + Integer.BYTES)), string(image.getInt(slot(i) + 2 * Integer.BYTES)));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int capacity() {
+        return slots;
+    }
+}
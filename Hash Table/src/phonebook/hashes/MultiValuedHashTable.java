@@ -0,0 +1,420 @@
+package phonebook.hashes;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>{@link MultiValuedHashTable} maps {@link String} keys to <b>sets</b> of {@link String} values, e.g a name to all
+ * of its phone numbers. It is not a {@link HashTable}, whose keys have exactly one value each, but it is laid out like
+ * one: keys live in a power of two array and collisions are resolved by <b>linear probing</b>. Every cell also holds
+ * the cached hash code of its key and the key's values, which are stored so that the common cases cost no allocation
+ * at all:</p>
+ * <ol>
+ *     <li>The first and second value of a key are stored <b>inline</b>, in two arrays parallel to the keys.</li>
+ *     <li>A key with three values or more gets an exact-size array holding all of them instead. That array is never
+ *     changed once it is reachable from the table: adding or removing a value replaces it with a new one.</li>
+ * </ol>
+ *
+ * <p>Because of that, {@link #get(String)} hands out its values as an unmodifiable {@link List} over the table's
+ * own storage, without copying them; the list is a snapshot, which later updates of the table do not affect. The table
+ * grows once keys take up more than {@link #MAX_LOAD_FACTOR} of its cells, and {@link #ensureCapacity(int)} can size
+ * it for millions of keys up front. Deleting the last value of a key empties its cell and shifts the rest of its
+ * cluster back, so no tombstones are ever left behind.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see phonebook.MultiPhonebook
+ */
+public class MultiValuedHashTable {
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    /**
+     * The fraction of cells that keys may take up before the table grows.
+     */
+    public static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private String[] keys;
+    private int[] hashes;
+    private String[] first;     // The only value of a key, or the first of two.
+    private String[] second;    // The second of two values, or null.
+    private String[][] more;    // All the values of a key with three or more, or null.
+
+    private int keyCount;
+    private int size;           // The number of <key, value> pairs.
+    private HashFunction hashFunction;
+
+    // The hash of key, mixed so that its low bits, which pick the cell, depend on all of its bits.
+    private int hashOf(String key) {
+        int h = hashFunction.hash(key);
+        h ^= h >>> 16;    // The finalizer of MurmurHash3.
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // The cell of key if it is in the table, or the bitwise complement of the empty cell where it would go.
+    private int find(String key, int hash) {
+        int mask = keys.length - 1;
+        int loc = hash & mask;
+        while (keys[loc] != null) {
+            if (hashes[loc] == hash && keys[loc].equals(key)) {
+                return loc;
+            }
+            loc = (loc + 1) & mask;
+        }
+        return ~loc;
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        hashes[to] = hashes[from];
+        first[to] = first[from];
+        second[to] = second[from];
+        more[to] = more[from];
+    }
+
+    private void clear(int loc) {
+        keys[loc] = null;
+        first[loc] = null;
+        second[loc] = null;
+        more[loc] = null;
+    }
+
+    // Empties a cell, and moves back every entry after it in its cluster that would otherwise become unreachable.
+    private void delete(int loc) {
+        int mask = keys.length - 1;
+        int next = loc;
+        int home;
+
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == null) {
+                break;
+            }
+            home = hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - loc) & mask)) {  // loc lies between home and next.
+                move(next, loc);
+                loc = next;
+            }
+        }
+        clear(loc);
+        keyCount--;
+    }
+
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        String[] oldFirst = first;
+        String[] oldSecond = second;
+        String[][] oldMore = more;
+        int mask = capacity - 1;
+        int loc;
+
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        first = new String[capacity];
+        second = new String[capacity];
+        more = new String[capacity][];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                loc = oldHashes[i] & mask;
+                while (keys[loc] != null) {
+                    loc = (loc + 1) & mask;
+                }
+                keys[loc] = oldKeys[i];
+                hashes[loc] = oldHashes[i];
+                first[loc] = oldFirst[i];
+                second[loc] = oldSecond[i];
+                more[loc] = oldMore[i];
+            }
+        }
+    }
+
+    private static int capacityFor(int keys, int from) {
+        int capacity = from;
+        while (capacity * MAX_LOAD_FACTOR < keys) {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("Cannot grow past " + MAX_CAPACITY + " cells.");
+            }
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Default constructor. Initializes the internal storage with 16 cells, and hashes keys with
+     * {@link HashFunction#STRING_HASH_CODE}.
+     */
+    public MultiValuedHashTable() {
+        this(0, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with an expected number of keys and a hash function.
+     * @param expectedKeys The number of keys this should be able to hold before it has to grow.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     * @throws IllegalArgumentException if expectedKeys is negative.
+     * @throws IllegalStateException if expectedKeys would take more than 2<sup>30</sup> cells.
+     */
+    public MultiValuedHashTable(int expectedKeys, HashFunction hashFunction) {
+        if (expectedKeys < 0)
+            throw new IllegalArgumentException("Provided: expectedKeys=" + expectedKeys + ".");
+        this.hashFunction = hashFunction;
+        int capacity = capacityFor(expectedKeys, INITIAL_CAPACITY);
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        first = new String[capacity];
+        second = new String[capacity];
+        more = new String[capacity][];
+        keyCount = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds value to the values of key, unless it is already one of them.
+     * @param key The record's key.
+     * @param value The value to add.
+     * @return {@code true} if the pair &lt;key, value&gt; was added, {@code false} if it was already in this.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     */
+    public boolean put(String key, String value) {
+        int hash;
+        int loc;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+        hash = hashOf(key);
+        loc = find(key, hash);
+        if (loc >= 0) {
+            if (more[loc] != null) {
+                if (indexOf(more[loc], value) >= 0) {
+                    return false;
+                }
+                String[] values = Arrays.copyOf(more[loc], more[loc].length + 1);
+                values[values.length - 1] = value;
+                more[loc] = values;
+            } else if (first[loc].equals(value) || value.equals(second[loc])) {
+                return false;
+            } else if (second[loc] == null) {
+                second[loc] = value;
+            } else {
+                more[loc] = new String[]{first[loc], second[loc], value};
+                first[loc] = null;
+                second[loc] = null;
+            }
+            size++;
+            return true;
+        }
+
+        if (keyCount + 1 > keys.length * MAX_LOAD_FACTOR) {
+            resize(capacityFor(keyCount + 1, 2 * keys.length));
+            loc = find(key, hash);
+        }
+        loc = ~loc;
+        keys[loc] = key;
+        hashes[loc] = hash;
+        first[loc] = value;
+        keyCount++;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes value from the values of key. Removing the last value of a key removes the key as well.
+     * @param key The record's key.
+     * @param value The value to remove.
+     * @return {@code true} if the pair &lt;key, value&gt; was in this, {@code false} otherwise, or if either argument
+     * is {@code null}.
+     */
+    public boolean remove(String key, String value) {
+        int loc;
+        int i;
+
+        if (key == null || value == null) {
+            return false;
+        }
+        loc = find(key, hashOf(key));
+        if (loc < 0) {
+            return false;
+        }
+        if (more[loc] != null) {
+            i = indexOf(more[loc], value);
+            if (i < 0) {
+                return false;
+            }
+            if (more[loc].length == 3) {    // Back to inline storage.
+                first[loc] = more[loc][(i == 0) ? 1 : 0];
+                second[loc] = more[loc][(i == 2) ? 1 : 2];
+                more[loc] = null;
+            } else {
+                String[] values = new String[more[loc].length - 1];
+                System.arraycopy(more[loc], 0, values, 0, i);
+                System.arraycopy(more[loc], i + 1, values, i, values.length - i);
+                more[loc] = values;
+            }
+        } else if (value.equals(second[loc])) {
+            second[loc] = null;
+        } else if (!first[loc].equals(value)) {
+            return false;
+        } else if (second[loc] != null) {
+            first[loc] = second[loc];
+            second[loc] = null;
+        } else {
+            delete(loc);
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes key along with all of its values.
+     * @param key The key to remove.
+     * @return The values key had, as {@link #get(String)} would have returned them.
+     */
+    public List<String> removeAll(String key) {
+        List<String> values = get(key);
+        if (!values.isEmpty()) {
+            delete(find(key, hashOf(key)));
+            size -= values.size();
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values of key, in the order they were added, without copying them.
+     * @param key The key to search for.
+     * @return An unmodifiable {@link List} of the values of key, which later updates of this do not affect. It is
+     * empty if key is {@code null} or not in this.
+     */
+    public List<String> get(String key) {
+        int loc = (key == null) ? -1 : find(key, hashOf(key));
+        if (loc < 0) {
+            return Collections.emptyList();
+        }
+        if (more[loc] != null) {
+            return Collections.unmodifiableList(Arrays.asList(more[loc]));
+        }
+        return (second[loc] == null) ? List.of(first[loc]) : List.of(first[loc], second[loc]);
+    }
+
+    /**
+     * Returns the number of values of key, without allocating anything.
+     * @param key The key to search for.
+     * @return The number of values of key, 0 if key is {@code null} or not in this.
+     */
+    public int count(String key) {
+        int loc = (key == null) ? -1 : find(key, hashOf(key));
+        if (loc < 0) {
+            return 0;
+        }
+        return (more[loc] != null) ? more[loc].length : (second[loc] == null) ? 1 : 2;
+    }
+
+    /**
+     * Queries this about the existence of key.
+     * @param key The key to search for.
+     * @return {@code true} if key has at least one value in this, {@code false} otherwise.
+     */
+    public boolean containsKey(String key) {
+        return key != null && find(key, hashOf(key)) >= 0;
+    }
+
+    /**
+     * Queries this about the existence of the pair &lt;key, value&gt;.
+     * @param key The key to search for.
+     * @param value The value to search for among the values of key.
+     * @return {@code true} if value is one of the values of key, {@code false} otherwise.
+     */
+    public boolean contains(String key, String value) {
+        int loc = (key == null || value == null) ? -1 : find(key, hashOf(key));
+        if (loc < 0) {
+            return false;
+        }
+        return (more[loc] != null) ? indexOf(more[loc], value) >= 0 : first[loc].equals(value) || value.equals(second[loc]);
+    }
+
+    /**
+     * Makes sure that this can hold the given number of keys without growing.
+     * @param keys The number of keys this should be able to hold.
+     * @throws IllegalStateException if that would take more than 2<sup>30</sup> cells.
+     */
+    public void ensureCapacity(int keys) {
+        int capacity = capacityFor(keys, this.keys.length);
+        if (capacity != this.keys.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Performs the given action on every pair &lt;key, value&gt; of this, in no particular order. The action should
+     * not modify this.
+     * @param action The action to perform.
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            if (more[i] != null) {
+                for (String value : more[i]) {
+                    action.accept(keys[i], value);
+                }
+            } else {
+                action.accept(keys[i], first[i]);
+                if (second[i] != null) {
+                    action.accept(keys[i], second[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of pairs &lt;key, value&gt; in this.
+     * @return The number of pairs in this, which is at least {@link #keyCount()}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of keys in this.
+     * @return The number of keys with at least one value.
+     */
+    public int keyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Returns the number of cells of this.
+     * @return A power of two.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+}
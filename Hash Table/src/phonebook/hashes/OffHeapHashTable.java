@@ -0,0 +1,551 @@
+package phonebook.hashes;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link OffHeapHashTable} is a {@link HashTable} which keeps all of its records <b>off the Java heap</b>, in
+ * buffers allocated with {@link ByteBuffer#allocateDirect(int)}. Every other {@link HashTable} holds a
+ * {@link phonebook.utils.KVPair} and two {@link String}s per record, all of which the garbage collector has to
+ * trace on every full collection; for a directory of a hundred million records, that means pauses of seconds. Here the
+ * garbage collector only ever sees a few dozen buffer objects, no matter how many records they hold.</p>
+ *
+ * <p>The table is an openly addressed table with <b>Linear Probing</b> and a power of two number of slots, at most
+ * half of which are full, like the images of {@link MappedHashTable}. Slots are split into <b>pages</b> of at most
+ * {@link #SLOTS_PER_PAGE} slots, so that the table can outgrow the 2GB a single buffer can hold:</p>
+ * <pre>
+ *     slot:    hash | record address, with an address of -1 for empty slots
+ *     record:  key length | value length | UTF-8 bytes of the key | UTF-8 bytes of the value
+ * </pre>
+ * <p>Records are appended to <b>chunks</b>, which start small and double in size up to {@link #MAX_CHUNK_BYTES}. A
+ * record's address is the index of its chunk in the high 32 bits and its offset in the chunk in the low 32 bits.
+ * Searches compare the cached hashes first and then the UTF-8 bytes of the key in place, so the only {@link String}s
+ * they create are the values they return. Deletions shift the rest of their cluster back instead of leaving tombstones
+ * behind. The records of deleted keys, and the old records of updated ones, are only reclaimed when they take up more
+ * room than the live records do, or on {@link #compact()}, by copying the live records into new chunks.</p>
+ *
+ * <p>Buffers that resizing or compaction leave behind are given back to the operating system right away, and
+ * {@link #release()} gives back all of them, instead of leaving them for the garbage collector to find. Otherwise,
+ * like every direct buffer, the memory of a table is given back once the table is unreachable and has been collected.
+ * Inserting a key that already exists <b>updates</b> its value.</p>
+ *
+ * @author Yosefe Eshete
+ * @see HashTable
+ * @see MappedHashTable
+ * @see LinearProbingHashTable
+ * @see CollisionResolver
+ */
+public class OffHeapHashTable implements HashTable {
+
+    /**
+     * The largest number of slots in a page of slots.
+     */
+    public static final int SLOTS_PER_PAGE = 1 << 20;
+
+    /**
+     * The largest size of a chunk of records, unless a single record needs more.
+     */
+    public static final int MAX_CHUNK_BYTES = 1 << 26;
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    private static final int SLOT_BYTES = Integer.BYTES + Long.BYTES;
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final long EMPTY = -1;
+    private static final int INITIAL_SLOTS = 8;
+    private static final int MAX_SLOTS = 1 << 30;
+    private static final int MIN_CHUNK_BYTES = 1 << 16;
+
+    private ByteBuffer[] pages;
+    private int slots;
+    private int count;
+
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+    private int top;            // The first free byte of the last chunk.
+    private long liveBytes;     // Bytes taken up by the records that slots point to.
+    private long garbageBytes;  // Bytes taken up by records that nothing points to anymore.
+    private HashFunction hashFunction;
+
+    // sun.misc.Unsafe#invokeCleaner(ByteBuffer), the only way to free a direct buffer before it is collected.
+    // Both are null if the JDK does not have it, and buffers are then left to the garbage collector.
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = type.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+            unsafe = theUnsafe.get(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    // Gives the memory of buffers that nothing points to anymore back to the operating system.
+    private static void free(ByteBuffer[] buffers) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            for (ByteBuffer buffer : buffers) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not free a direct buffer.", e);
+        }
+    }
+
+    // The hash of key, mixed so that its low bits, which pick the slot, depend on all of its bits.
+    private int hashOf(String key) {
+        int h = hashFunction.hash(key);
+        h ^= h >>> 16;    // The finalizer of MurmurHash3.
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static ByteBuffer[] newPages(int slots) {
+        int perPage = Math.min(slots, SLOTS_PER_PAGE);
+        ByteBuffer[] pages = new ByteBuffer[slots / perPage];
+        for (int p = 0; p < pages.length; p++) {
+            pages[p] = ByteBuffer.allocateDirect(perPage * SLOT_BYTES);
+            for (int i = 0; i < perPage; i++) {
+                pages[p].putLong(i * SLOT_BYTES + Integer.BYTES, EMPTY);
+            }
+        }
+        return pages;
+    }
+
+    private ByteBuffer page(int slot) {
+        return pages[slot / SLOTS_PER_PAGE];
+    }
+
+    private static int position(int slot) {
+        return (slot % SLOTS_PER_PAGE) * SLOT_BYTES;
+    }
+
+    private int hashAt(int slot) {
+        return page(slot).getInt(position(slot));
+    }
+
+    private long addressAt(int slot) {
+        return page(slot).getLong(position(slot) + Integer.BYTES);
+    }
+
+    private void setSlot(int slot, int hash, long address) {
+        page(slot).putInt(position(slot), hash).putLong(position(slot) + Integer.BYTES, address);
+    }
+
+    private ByteBuffer chunk(long address) {
+        return chunks[(int) (address >>> 32)];
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private int recordBytes(long address) {
+        ByteBuffer chunk = chunk(address);
+        return RECORD_HEADER_BYTES + chunk.getInt(offset(address)) + chunk.getInt(offset(address) + Integer.BYTES);
+    }
+
+    // Appends a record to the last chunk, or to a new one if it does not fit. Returns its address.
+    private long append(byte[] key, byte[] value) {
+        int bytes = RECORD_HEADER_BYTES + key.length + value.length;
+        ByteBuffer chunk = (chunks.length == 0) ? null : chunks[chunks.length - 1];
+        if (chunk == null || chunk.capacity() - top < bytes) {
+            int size = (chunk == null) ? MIN_CHUNK_BYTES : Math.min(2 * chunk.capacity(), MAX_CHUNK_BYTES);
+            chunk = ByteBuffer.allocateDirect(Math.max(size, bytes));
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = chunk;
+            top = 0;
+        }
+        long address = ((long) (chunks.length - 1) << 32) | top;
+        chunk.putInt(top, key.length).putInt(top + Integer.BYTES, value.length);
+        chunk.put(top + RECORD_HEADER_BYTES, key).put(top + RECORD_HEADER_BYTES + key.length, value);
+        top += bytes;
+        liveBytes += bytes;
+        return address;
+    }
+
+    // Compares the key of the record at address with the UTF-8 bytes of a key, without copying it.
+    private boolean matches(long address, byte[] key) {
+        ByteBuffer chunk = chunk(address);
+        int at = offset(address);
+        if (chunk.getInt(at) != key.length) {
+            return false;
+        }
+        at += RECORD_HEADER_BYTES;
+        for (int i = 0; i < key.length; i++) {
+            if (chunk.get(at + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String key(long address) {
+        ByteBuffer chunk = chunk(address);
+        byte[] bytes = new byte[chunk.getInt(offset(address))];
+        chunk.get(offset(address) + RECORD_HEADER_BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String value(long address) {
+        ByteBuffer chunk = chunk(address);
+        int at = offset(address);
+        byte[] bytes = new byte[chunk.getInt(at + Integer.BYTES)];
+        chunk.get(at + RECORD_HEADER_BYTES + chunk.getInt(at), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Returns the slot holding key, or -(number of probes) if key is not in the table.
+    private int find(byte[] key, int hash) {
+        int loc = hash & (slots - 1);
+        long address;
+        for (int i = 0; i < slots; i++) {
+            address = addressAt(loc);
+            if (address == EMPTY) {
+                return -(i + 1);
+            }
+            if (hashAt(loc) == hash && matches(address, key)) {
+                return loc;
+            }
+            loc = (loc + 1) & (slots - 1);
+        }
+        return -slots;
+    }
+
+    // The number of probes a search makes to get from the home slot of hash to slot.
+    private int probesTo(int slot, int hash) {
+        return ((slot - (hash & (slots - 1))) & (slots - 1)) + 1;
+    }
+
+    // Re-inserts every slot into new pages with the given number of slots, by their cached hashes.
+    // Records do not move. Returns the number of slots visited.
+    private int resize(int newSlots) {
+        ByteBuffer[] oldPages = pages;
+        int oldSlots = slots;
+        int loc;
+        long address;
+
+        pages = newPages(newSlots);
+        slots = newSlots;
+        for (int i = 0; i < oldSlots; i++) {
+            address = oldPages[i / SLOTS_PER_PAGE].getLong(position(i) + Integer.BYTES);
+            if (address != EMPTY) {
+                int hash = oldPages[i / SLOTS_PER_PAGE].getInt(position(i));
+                loc = hash & (slots - 1);
+                while (addressAt(loc) != EMPTY) {
+                    loc = (loc + 1) & (slots - 1);
+                }
+                setSlot(loc, hash, address);
+            }
+        }
+        free(oldPages);
+        return oldSlots;
+    }
+
+    private static int slotsFor(int entries, int from) {
+        int capacity = from;
+        while (capacity < 2L * entries) {
+            if (capacity >= MAX_SLOTS) {
+                throw new IllegalStateException("Cannot grow past " + MAX_SLOTS + " slots.");
+            }
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    // Copies every live record into new chunks, which drops the garbage. Returns the number of slots visited.
+    private int reclaim() {
+        ByteBuffer[] oldChunks = chunks;
+        long address;
+
+        chunks = new ByteBuffer[0];
+        top = 0;
+        liveBytes = 0;
+        garbageBytes = 0;
+        for (int i = 0; i < slots; i++) {
+            address = addressAt(i);
+            if (address != EMPTY) {
+                ByteBuffer chunk = oldChunks[(int) (address >>> 32)];
+                int at = offset(address);
+                byte[] key = new byte[chunk.getInt(at)];
+                byte[] value = new byte[chunk.getInt(at + Integer.BYTES)];
+                chunk.get(at + RECORD_HEADER_BYTES, key).get(at + RECORD_HEADER_BYTES + key.length, value);
+                setSlot(i, hashAt(i), append(key, value));
+            }
+        }
+        free(oldChunks);
+        return slots;
+    }
+
+    private int reclaimIfNeeded() {
+        return (garbageBytes > liveBytes && garbageBytes > MIN_CHUNK_BYTES) ? reclaim() : 0;
+    }
+
+    // Empties slot, then shifts back every later entry of its cluster that could not be found across the hole.
+    // Returns the number of slots inspected after slot.
+    private int backwardShift(int slot) {
+        int hole = slot;
+        int next = slot;
+        int probeCount = 0;
+        long address;
+
+        while (true) {
+            next = (next + 1) & (slots - 1);
+            probeCount++;
+            address = addressAt(next);
+            if (address == EMPTY) {
+                break;
+            }
+            if (((next - hashAt(next)) & (slots - 1)) >= ((next - hole) & (slots - 1))) {
+                setSlot(hole, hashAt(next), address);
+                hole = next;
+            }
+        }
+        setSlot(hole, 0, EMPTY);
+        return probeCount;
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Default constructor. Initializes the slots with a single page of 8 slots, and hashes keys with
+     * {@link HashFunction#STRING_HASH_CODE}. No records are allocated until the first insertion.
+     */
+    public OffHeapHashTable() {
+        this(HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with a hash function. Initializes the slots with a single page of 8 slots.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public OffHeapHashTable(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+        slots = INITIAL_SLOTS;
+        pages = newPages(slots);
+        count = 0;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, or updates the value of key if it is already in this. An
+     * updated value is written over the old one if it takes up as many bytes, and appended as a new record otherwise.
+     * The number of slots is doubled before an insertion that would make more than half of them full.
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The {@link phonebook.utils.Probes} with the value added and the number of probes it makes, resizing included.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        byte[] keyBytes;
+        byte[] valueBytes;
+        int hash;
+        int loc;
+        int probeCount = 0;
+        long address;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+        keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        hash = hashOf(key);
+        loc = find(keyBytes, hash);
+        if (loc >= 0) {
+            address = addressAt(loc);
+            ByteBuffer chunk = chunk(address);
+            if (chunk.getInt(offset(address) + Integer.BYTES) == valueBytes.length) {
+                chunk.put(offset(address) + RECORD_HEADER_BYTES + keyBytes.length, valueBytes);
+            } else {
+                int old = recordBytes(address);
+                setSlot(loc, hash, append(keyBytes, valueBytes));
+                liveBytes -= old;
+                garbageBytes += old;
+                probeCount += reclaimIfNeeded();
+            }
+            return new Probes(value, probeCount + probesTo(loc, hash));
+        }
+
+        if (2L * (count + 1) > slots) {
+            probeCount += resize(slotsFor(count + 1, 2 * slots));
+            loc = find(keyBytes, hash);
+        }
+        probeCount -= loc;
+        loc = (hash - loc - 1) & (slots - 1);   // find() stopped at the empty slot -loc - 1 probes past the home slot.
+        setSlot(loc, hash, append(keyBytes, valueBytes));
+        count++;
+        return new Probes(value, probeCount);
+    }
+
+    /**
+     * Makes sure that this can hold the given number of entries without doubling its slots. Records are
+     * unaffected, since they are allocated one by one.
+     * @param entries The number of entries this should be able to hold.
+     * @return The number of probes made while resizing, 0 if no resizing was needed.
+     * @throws IllegalStateException if more than 2<sup>30</sup> slots would be needed.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int newSlots = slotsFor(entries, slots);
+        return (newSlots == slots) ? 0 : resize(newSlots);
+    }
+
+    /**
+     * Gives back the off-heap bytes of deleted records, and of the old records of updated keys, by copying all live
+     * records into new chunks.
+     * @return The number of slots visited, 0 if there was nothing to give back.
+     */
+    @Override
+    public int compact() {
+        return (garbageBytes > 0) ? reclaim() : 0;
+    }
+
+    @Override
+    public Probes get(String key) {
+        int hash;
+        int loc;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        hash = hashOf(key);
+        loc = find(key.getBytes(StandardCharsets.UTF_8), hash);
+        if (loc < 0) {
+            return new Probes(null, -loc);
+        }
+        return new Probes(value(addressAt(loc)), probesTo(loc, hash));
+    }
+
+    @Override
+    public String lookup(String key) {
+        int loc = (key == null) ? -1 : find(key.getBytes(StandardCharsets.UTF_8), hashOf(key));
+        return (loc < 0) ? null : value(addressAt(loc));
+    }
+
+    /**
+     * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> it from the table. The
+     * rest of its cluster is shifted back, and its record becomes garbage.
+     * @param key The key to search for.
+     * @return The {@link phonebook.utils.Probes} with associated value and the number of probe used. If the key is {@code null}, return value {@code null}
+     * and 0 as number of probes; if the key doesn't exist in the database, return {@code null} and the number of probes used.
+     */
+    @Override
+    public Probes remove(String key) {
+        int hash;
+        int loc;
+        int probeCount;
+        long address;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        hash = hashOf(key);
+        loc = find(key.getBytes(StandardCharsets.UTF_8), hash);
+        if (loc < 0) {
+            return new Probes(null, -loc);
+        }
+        address = addressAt(loc);
+        value = value(address);
+        probeCount = probesTo(loc, hash) + backwardShift(loc);
+        liveBytes -= recordBytes(address);
+        garbageBytes += recordBytes(address);
+        count--;
+        return new Probes(value, probeCount + reclaimIfNeeded());
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && find(key.getBytes(StandardCharsets.UTF_8), hashOf(key)) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            long address;
+            for (int i = 0; i < slots; i++) {
+                address = addressAt(i);
+                if (address != EMPTY && chunk(address).getInt(offset(address) + Integer.BYTES) == bytes.length
+                        && value(address).equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        long address;
+        for (int i = 0; i < slots; i++) {
+            address = addressAt(i);
+            if (address != EMPTY) {
+                action.accept(key(address), value(address));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int capacity() {
+        return slots;
+    }
+
+    /**
+     * Removes every entry, and gives the memory of every buffer back to the operating system right away, instead of
+     * once this table has been collected. This table is left as if it had just been created, and can still be used.
+     */
+    public void release() {
+        ByteBuffer[] oldPages = pages;
+        ByteBuffer[] oldChunks = chunks;
+
+        slots = INITIAL_SLOTS;
+        pages = newPages(slots);
+        count = 0;
+        chunks = new ByteBuffer[0];
+        top = 0;
+        liveBytes = 0;
+        garbageBytes = 0;
+        free(oldPages);
+        free(oldChunks);
+    }
+
+    /**
+     * Returns the number of off-heap bytes this table holds, slots and records included.
+     * @return The total capacity of the direct buffers of this table.
+     */
+    public long offHeapBytes() {
+        long bytes = (long) slots * SLOT_BYTES;
+        for (ByteBuffer chunk : chunks) {
+            bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+}
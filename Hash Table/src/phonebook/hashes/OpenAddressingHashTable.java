@@ -1,5 +1,7 @@
 package phonebook.hashes;
 
+import java.util.function.BiConsumer;
+
 import phonebook.utils.KVPair;
 import phonebook.utils.PrimeGenerator;
 
@@ -71,15 +73,16 @@ public abstract class OpenAddressingHashTable implements HashTable{
     protected boolean softFlag;
 
     /**
-     * A hash function that uses the default hash code for {@link String} types, but masks the top
-     * bit to avoid negative hashes.
+     * A hash function that uses the hash code of the table's {@link HashFunction} for {@link String} types,
+     * and maps it to a cell.
      * @param key The {@link String} key to find the hash code of.
-     * @return The hash code of the parameter {@link String} as produced by {@link String#hashCode()},
-     * but with the top bit masked.
-     * @see String#hashCode()
+     * @return The cell that the hash code of the parameter {@link String}, as produced by {@link #hashOf(String)},
+     * maps to.
+     * @see #hashOf(String)
+     * @see #index(int, int)
      */
     protected int hash(String key) {
-        return (key.hashCode() & 0x7fffffff) % table.length;
+        return index(hashOf(key), table.length);
     }
 
     /**
@@ -108,6 +111,243 @@ public abstract class OpenAddressingHashTable implements HashTable{
     protected int resizeProbe; 
     protected boolean resizeBool = false;
 
+    /**
+     * The number of non-{@code null} cells in {@link #table}, i.e live entries <b>plus</b> tombstones. Every
+     * insertion, deletion and resizing keeps it up to date, so that deciding whether the table has crossed
+     * the 50&#37; mark is a constant time check instead of a scan over the whole table.
+     */
+    protected int occupied;
+
+    /**
+     * How capacities are chosen and hash codes are mapped to cells. {@link CapacityPolicy#PRIME} unless
+     * a subclass' constructor was given another one.
+     */
+    protected CapacityPolicy capacityPolicy = CapacityPolicy.PRIME;
+
+    /**
+     * How keys are turned into hash codes before {@link #index(int, int)} maps them to cells.
+     * {@link HashFunction#STRING_HASH_CODE} unless a subclass' constructor was given another one.
+     */
+    protected HashFunction hashFunction = HashFunction.STRING_HASH_CODE;
+
+    /**
+     * The hash code of a key under {@link #hashFunction}. Everything that maps a key to a cell, resizings included,
+     * should go through this instead of {@link String#hashCode()}.
+     * @param key A non-{@code null} key.
+     * @return The hash code of key. It may be negative.
+     */
+    protected int hashOf(String key) {
+        return hashFunction.hash(key);
+    }
+
+    /**
+     * The fraction of the capacity that tombstones may take up before {@link #compactIfNeeded()} gets rid of them.
+     * Since openly addressed tables resize once half of their cells are taken, a table that reaches it holds
+     * at least as many tombstones as live entries.
+     */
+    public static final double MAX_TOMBSTONE_RATIO = 0.25;
+
+    /**
+     * The capacity that a new table should start with under {@link #capacityPolicy}.
+     * @return 7 for {@link CapacityPolicy#PRIME}, 8 for {@link CapacityPolicy#POWER_OF_TWO}.
+     */
+    protected int initialCapacity() {
+        return (capacityPolicy == CapacityPolicy.POWER_OF_TWO) ? 8 : primeGenerator.getCurrPrime();
+    }
+
+    /**
+     * The capacity that the table should be resized to under {@link #capacityPolicy}.
+     * @return The next prime from {@link #primeGenerator}, or twice the current capacity.
+     * @throws IllegalStateException if a power of two table is already as large as a Java array can be.
+     */
+    protected int nextCapacity() {
+        return nextCapacity(table.length);
+    }
+
+    /**
+     * The capacity that follows length under {@link #capacityPolicy}.
+     * @param length The capacity to grow from. For {@link CapacityPolicy#PRIME}, this should be the current prime of
+     *               {@link #primeGenerator}.
+     * @return The next prime from {@link #primeGenerator}, or twice length.
+     * @throws IllegalStateException if a power of two table is already as large as a Java array can be.
+     */
+    protected int nextCapacity(int length) {
+        if (capacityPolicy == CapacityPolicy.POWER_OF_TWO) {
+            if (length >= (1 << 30)) {
+                throw new IllegalStateException("nextCapacity(): Cannot double a table of capacity " + length + ".");
+            }
+            return length << 1;
+        }
+        return primeGenerator.getNextPrime();
+    }
+
+    /**
+     * Grows the table, in a single step, to the first capacity under {@link #capacityPolicy} that can hold the given
+     * number of entries while staying less than half full. The entries are re-inserted through {@link #put(String, String)},
+     * so that every subclass keeps its own ordering of the collision chains. Tombstones are dropped.
+     * @param entries The number of entries the table should be able to hold without resizing.
+     * @return The number of probes made by re-inserting the current entries.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int capacity = table.length;
+
+        if (2 * entries < capacity) {
+            return 0;
+        }
+        while (2 * entries >= capacity) {
+            capacity = nextCapacity(capacity);
+        }
+        return rehash(capacity);
+    }
+
+    /**
+     * Re-inserts every entry into a new array of the given capacity through {@link #put(String, String)}, so that every
+     * subclass keeps its own ordering of the collision chains. Tombstones are dropped.
+     * @param capacity The capacity of the new array.
+     * @return The number of probes made by re-inserting the current entries.
+     */
+    protected int rehash(int capacity) {
+        int probeCount = 0;
+        KVPair[] oldTable = table;
+
+        table = new KVPair[capacity];
+        count = 0;
+        occupied = 0;
+        resizeBool = false;
+        for (int i = 0; i < oldTable.length; i++) {
+            probeCount++;
+            if (oldTable[i] != null && oldTable[i] != TOMBSTONE) {
+                probeCount += put(oldTable[i].getKey(), oldTable[i].getValue()).getProbes();
+            }
+        }
+        return probeCount;
+    }
+
+    /**
+     * Rehashes the table in place, at the same capacity, if it holds any tombstones. Unlike a resizing, this
+     * leaves {@link #primeGenerator} alone.
+     * @return The number of probes made by re-inserting the current entries, 0 if there were no tombstones.
+     */
+    @Override
+    public int compact() {
+        return (occupied > count) ? rehash(table.length) : 0;
+    }
+
+    /**
+     * Decides whether a resizing that is due can be replaced by a {@link #compact()}: that is, if at least half of the
+     * occupied cells are tombstones, so that getting rid of them leaves the table no more than about a quarter full.
+     * @return {@code true} if compacting the table makes as much room as resizing it would.
+     */
+    protected boolean compactInsteadOfResizing() {
+        return 2 * count <= occupied;
+    }
+
+    /**
+     * Calls {@link #compact()} if tombstones take up more than {@link #MAX_TOMBSTONE_RATIO} of the table. Soft
+     * deletions should call this after leaving a tombstone behind, so that delete-heavy workloads do not make
+     * searches walk ever longer runs of tombstones, which only a growth resizing would otherwise get rid of.
+     * @return The number of probes made by {@link #compact()}, 0 if it was not called.
+     */
+    protected int compactIfNeeded() {
+        return (occupied - count > MAX_TOMBSTONE_RATIO * table.length) ? compact() : 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < table.length; i++) {
+            if (table[i] != null && table[i] != TOMBSTONE) {
+                action.accept(table[i].getKey(), table[i].getValue());
+            }
+        }
+    }
+
+    /**
+     * Counts the tombstones in {@link #table} by scanning it, so that it is correct no matter how a subclass deletes.
+     * @return The number of cells of {@link #table} that hold {@link #TOMBSTONE}.
+     */
+    protected int tombstones() {
+        KVPair[] t = table;
+        int tombstones = 0;
+        for (int i = 0; i < t.length; i++) {
+            if (t[i] == TOMBSTONE) {
+                tombstones++;
+            }
+        }
+        return tombstones;
+    }
+
+    /**
+     * Finds the longest <b>cluster</b> of {@link #table}: the longest run of consecutive non-{@code null} cells,
+     * tombstones included, wrapping around its end. Under linear probing, a search for a key that is not in the table
+     * probes the whole cluster its home cell falls into, so this is the worst case of an unsuccessful search.
+     * @return The length of the longest cluster, which is the capacity of the table if it has no {@code null} cells.
+     */
+    protected int maxClusterLength() {
+        KVPair[] t = table;
+        int longest = 0;
+        int run = 0;
+        int leading = -1;   // The length of the run that starts at cell 0, which the last run wraps into.
+
+        for (int i = 0; i < t.length; i++) {
+            if (t[i] != null) {
+                run++;
+            } else {
+                if (leading < 0) {
+                    leading = run;
+                }
+                longest = Math.max(longest, run);
+                run = 0;
+            }
+        }
+        return (leading < 0) ? t.length : Math.max(longest, run + leading);
+    }
+
+    /**
+     * Maps a hash code to a cell of a table of the given length. Prime tables mask the top bit and take the
+     * remainder; power of two tables mix the bits of the hash code first, since the mask only keeps the low ones.
+     * @param hashCode The hash code of the key, as produced by {@link #hashOf(String)}.
+     * @param length The length of the table.
+     * @return The home cell of the key.
+     */
+    protected int index(int hashCode, int length) {
+        if (capacityPolicy == CapacityPolicy.POWER_OF_TWO) {
+            hashCode ^= hashCode >>> 16;    // The finalizer of MurmurHash3.
+            hashCode *= 0x85ebca6b;
+            hashCode ^= hashCode >>> 13;
+            hashCode *= 0xc2b2ae35;
+            hashCode ^= hashCode >>> 16;
+            return hashCode & (length - 1);
+        }
+        return (hashCode & 0x7fffffff) % length;
+    }
+
+    /**
+     * The i-th cell in the linear probing sequence that starts at loc.
+     * @param loc The home cell.
+     * @param i The number of collisions so far.
+     * @param length The length of the table.
+     * @return (loc + i) mod length.
+     */
+    protected int linearProbe(int loc, int i, int length) {
+        return (capacityPolicy == CapacityPolicy.POWER_OF_TWO) ? (loc + i) & (length - 1) : (loc + i) % length;
+    }
+
+    /**
+     * The i-th cell in the quadratic probing sequence that starts at loc. Prime tables jump i + i^2 cells away
+     * from loc, as in the writeup; power of two tables jump i(i+1)/2 cells away, which visits every cell.
+     * @param loc The home cell.
+     * @param i The number of collisions so far.
+     * @param length The length of the table.
+     * @return The cell to probe.
+     */
+    protected int quadraticProbe(int loc, int i, int length) {
+        if (capacityPolicy == CapacityPolicy.POWER_OF_TWO) {
+            return (int) ((loc + (long) i * (i + 1) / 2) & (length - 1));
+        }
+        return (int) ((loc + i + (long) i * i) % length);
+    }
+
 
     /**
      * Method for resizing the hashtable when it exceeds 50% capacity.
@@ -116,7 +356,7 @@ public abstract class OpenAddressingHashTable implements HashTable{
 
         int loc; 
         int reLoc; 
-        KVPair[] newTable = new KVPair[primeGenerator.getNextPrime()]; 
+        KVPair[] newTable = new KVPair[nextCapacity()]; 
         resizeProbe = 0;  
         count = 0;       
         for (int i = 0; i < newTable.length; i++) {
@@ -126,7 +366,7 @@ public abstract class OpenAddressingHashTable implements HashTable{
         for (int i = 0; i < table.length; i++) {
             resizeProbe++;
             if (table[i] != null && !table[i].equals(TOMBSTONE)) {
-                loc = (table[i].getKey().hashCode() & 0x7fffffff) % newTable.length;
+                loc = index(hashOf(table[i].getKey()), newTable.length);
                 resizeProbe++;
                 if (newTable[loc] == null ) {
                     newTable[loc] = new KVPair(table[i].getKey(), table[i].getValue());
@@ -135,7 +375,7 @@ public abstract class OpenAddressingHashTable implements HashTable{
                 } else {
                     for (int z = 1; z < newTable.length; z++) {
                         resizeProbe++;
-                        reLoc = (loc + z) % newTable.length; 
+                        reLoc = linearProbe(loc, z, newTable.length); 
                         if (newTable[reLoc] == null ) {
                             newTable[reLoc] = new KVPair(table[i].getKey(), table[i].getValue());
                             count++;
@@ -145,6 +385,7 @@ public abstract class OpenAddressingHashTable implements HashTable{
                 }
             }
         }
+        occupied = count;
         return newTable;
     }
 
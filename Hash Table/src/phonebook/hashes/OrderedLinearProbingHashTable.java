@@ -34,7 +34,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
 
         int loc; 
         int reLoc; 
-        KVPair[] newTable = new KVPair[primeGenerator.getNextPrime()]; 
+        KVPair[] newTable = new KVPair[nextCapacity()]; 
         String keyCopy;
         String valueCopy;
         String key;
@@ -48,12 +48,12 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
         for (int i = 0; i < table.length; i++) {
             resizeProbe++;
             if (table[i] != null && !table[i].equals(TOMBSTONE)) {
-                loc = (table[i].getKey().hashCode() & 0x7fffffff) % newTable.length;  
+                loc = index(hashOf(table[i].getKey()), newTable.length);  
                 key = table[i].getKey();
                 value = table[i].getValue();
                 for (int z = 0; z < newTable.length; z++) {
                     resizeProbe++;
-                    reLoc = (loc + z) % newTable.length; 
+                    reLoc = linearProbe(loc, z, newTable.length); 
                     if (newTable[reLoc] == null ) {
                         newTable[reLoc] = new KVPair(key, value);
                         count++;
@@ -70,6 +70,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
 
             }
         }
+        occupied = count;
         return newTable;
     }
 
@@ -78,17 +79,41 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
      * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
      *               we want soft deletion, {@code false} otherwise.
      */
-    public OrderedLinearProbingHashTable(boolean soft){
+    public OrderedLinearProbingHashTable(boolean soft) {
+        this(soft, CapacityPolicy.PRIME);
+    }
+
+    /**
+     * Constructor with soft deletion and capacity policy options. Initializes the internal storage with the initial capacity
+     * of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     */
+    public OrderedLinearProbingHashTable(boolean soft, CapacityPolicy policy) {
+        this(soft, policy, HashFunction.STRING_HASH_CODE);
+    }
 
-       // throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
+    /**
+     * Constructor with soft deletion, capacity policy and hash function options. Initializes the internal storage with the
+     * initial capacity of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public OrderedLinearProbingHashTable(boolean soft, CapacityPolicy policy, HashFunction hashFunction) {
        primeGenerator = new PrimeGenerator();
-       table = new KVPair[primeGenerator.getCurrPrime()];
+       capacityPolicy = policy;
+       this.hashFunction = hashFunction;
+       table = new KVPair[initialCapacity()];
        softFlag = soft; 
 
        for (int i = 0; i < table.length; i++) {
            table[i] = null;
        }
        count = 0; 
+       occupied = 0;
 
     }
 
@@ -127,19 +152,22 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
             throw new IllegalArgumentException();
         }
 
-        if (resizeBool) {            
+        if (resizeBool && compactInsteadOfResizing()) {
+            probeCount += compact();
+        } else if (resizeBool) {
             table = OLPresize(table);
             probeCount += resizeProbe;
-        } 
+        }
         resizeBool = false;
         loc = hash(key); 
         
         for (int i = 0; i < table.length; i++) {
             probeCount++;
-            reLoc = (loc + i) % table.length;
+            reLoc = linearProbe(loc, i, table.length);
             if (table[reLoc] == null ) {
                 table[reLoc] = new KVPair(key, value);
                 count++;
+                occupied++;
                 break;
             }
 
@@ -152,13 +180,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
             }
         }
 
-        loc = 0;
-        for (int i = 0; i < table.length; i++) {
-            if (table[i] != null) {
-                loc++;
-            }
-        }
-        if ( (float) loc/this.capacity() > .5 ) {
+        if ( (float) occupied/this.capacity() > .5 ) {
             resizeBool = true;
         }
         probe = new Probes(value, probeCount);
@@ -175,7 +197,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
         if (key != null) {
             loc = hash(key);    
             for (int i = 0; i < table.length; i++) {
-                linProbe = (loc + i) % table.length; 
+                linProbe = linearProbe(loc, i, table.length); 
                 if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
                     ret = new Probes(table[linProbe].getValue(), i+1);
                     break;
@@ -196,6 +218,31 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
     }
 
 
+    @Override
+    public String lookup(String key) {
+        int loc;
+        int linProbe;
+
+        if (key != null) {
+            loc = hash(key);
+            for (int i = 0; i < table.length; i++) {
+                linProbe = linearProbe(loc, i, table.length);
+                if (table[linProbe] == null) {
+                    break;
+                }
+                if (table[linProbe] != TOMBSTONE) {
+                    if (table[linProbe].getKey().equals(key)) {
+                        return table[linProbe].getValue();
+                    }
+                    if (table[linProbe].getKey().compareTo(key) > 0) {
+                        break;  // Past the place key would have been at in the ordered cluster.
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> the {@link phonebook.utils.KVPair} from the table.
      * If key does not exist in the database
@@ -220,11 +267,13 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
             loc = hash(key);  
             if (softFlag) {
                 for (int i = 0; i < table.length; i++) {
-                    linProbe = (loc + i) % table.length; 
+                    linProbe = linearProbe(loc, i, table.length); 
                     if (!table[linProbe].equals(TOMBSTONE) && table[linProbe] != null && table[linProbe].getKey().equals(key)) {
                         ret = new Probes(table[loc].getValue(), i+1);
                         table[linProbe] = TOMBSTONE;
                         count--;
+                        // Tombstones cannot be reused without breaking the order of the cluster, so clear them out instead.
+                        ret = new Probes(ret.getValue(), ret.getProbes() + compactIfNeeded());
                         break;
                     }
 
@@ -240,7 +289,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
                 }
             } else {  
                 for (int i = 0; i < table.length; i++) {
-                    linProbe = (loc + i) % table.length; 
+                    linProbe = linearProbe(loc, i, table.length); 
 
                     if (table[linProbe] == null) {
                         hardCount += i+1;
@@ -251,6 +300,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
                         keyCopy = table[linProbe].getKey();
                         valueCopy = table[linProbe].getValue();
                         table[linProbe] = null;
+                        occupied--;
                         hardCount += this.put(keyCopy, valueCopy).getProbes();
                     }
 
@@ -265,6 +315,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
                         val = table[linProbe].getValue();
                         table[linProbe] = null;
                         count--;
+                        occupied--;
                     }  
                 }
                 ret = new Probes(val, hardCount);
@@ -285,7 +336,7 @@ public class OrderedLinearProbingHashTable extends OpenAddressingHashTable {
         if (key != null) {
             loc = hash(key);    
             for (int i = 0; i < table.length; i++) {
-                linProbe = (loc + i) % table.length; 
+                linProbe = linearProbe(loc, i, table.length); 
                 if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
                     ret = true;
                     break;
@@ -0,0 +1,326 @@
+package phonebook.hashes;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link PerfectHashTable} is a <b>read-only</b> {@link HashTable} built over a fixed set of keys with a <b>minimal
+ * perfect hash function</b>: a function which maps each of its n keys to a different cell among exactly n cells. Keys
+ * and values are stored in two dense arrays of that length, and every search makes <b>exactly one</b> probe: it
+ * computes the cell of its key, and compares the key stored there with its own, since a key that is not in the table
+ * is mapped to some arbitrary cell.</p>
+ *
+ * <p>The function is built with the <i>hash and displace</i> scheme of CHD and PTHash. Keys are hashed into about
+ * n / {@link #BUCKET_SIZE} <b>buckets</b> by a first seeded {@link HashFunction}, and the buckets are then placed one
+ * by one, largest first: a bucket tries <b>pilot</b> values 0, 1, 2, ... until it finds one which sends every one of
+ * its keys, through a second seeded hash mixed with the pilot, to a free cell. As in PTHash, the buckets are placed
+ * among about 2% more cells than keys, since the last buckets would otherwise need a great many pilots to find the very
+ * last free cells; the few keys placed past the n-th cell are then sent to the cells left free before it through a
+ * small remapping array. The table only remembers the two seeds, the pilot of every bucket and that array, so the
+ * function itself takes about {@code 32 / BUCKET_SIZE} bits per key. Should a bucket run out of pilots, the whole
+ * construction starts over with new seeds.</p>
+ *
+ * <p>Hashing the keys and sorting them into buckets, which is most of the work for large tables, run in parallel on
+ * the common {@link java.util.concurrent.ForkJoinPool}; placing the buckets is sequential.
+ * {@link #put(String, String)} and {@link #remove(String)} throw an {@link UnsupportedOperationException}, and a
+ * {@link PerfectHashTable} can be searched by any number of threads at once.</p>
+ *
+ * @author Yosefe Eshete
+ * @see HashTable
+ * @see MappedHashTable
+ * @see phonebook.Phonebook#freeze()
+ */
+public class PerfectHashTable implements HashTable {
+
+    /**
+     * The average number of keys per bucket. Larger buckets make the function smaller, but harder to build.
+     */
+    public static final int BUCKET_SIZE = 4;
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    private static final double LOAD_FACTOR = 0.98;
+    private static final int MAX_PILOT = 1 << 20;
+    private static final int MAX_ATTEMPTS = 16;
+    private static final int FIRST_SEED = 0x2545F491;
+
+    private final String[] keys;
+    private final String[] values;
+    private final int[] pilots;
+    private final int[] remap;
+    private final HashFunction bucketHash;
+    private final HashFunction cellHash;
+
+    // Maps a 32-bit hash to [0, n) without a division.
+    private static int reduce(int hash, int n) {
+        return (int) (((hash & 0xFFFFFFFFL) * n) >>> 32);
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;    // The finalizer of MurmurHash3.
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int cellOf(int cellHash, int pilot, int n) {
+        return reduce(mix(cellHash ^ mix(pilot * 0x9E3779B9 + 1)), n);
+    }
+
+    private int cellOf(String key) {
+        int cell = cellOf(cellHash.hash(key), pilots[reduce(bucketHash.hash(key), pilots.length)], keys.length + remap.length);
+        return (cell < keys.length) ? cell : remap[cell - keys.length];
+    }
+
+    // Tries to build the function with the given hash functions, filling in pilots and remap. Returns the cell of every
+    // key, or null if a bucket ran out of pilots, in which case other hash functions should be tried.
+    private static int[] build(String[] source, HashFunction bucketHash, HashFunction cellHash, int[] pilots, int[] remap) {
+        int n = source.length;
+        int m = n + remap.length;
+        int buckets = pilots.length;
+        int[] cellHashes = new int[n];
+        long[] byBucket = new long[n];
+        int[] start = new int[buckets + 1];
+        int[] order = new int[buckets];
+        int[] bySize;
+        int maxSize = 0;
+        boolean[] taken = new boolean[m];
+        int[] cells = new int[n];
+        int[] tried;
+
+        IntStream.range(0, n).parallel().forEach(i -> {
+            cellHashes[i] = cellHash.hash(source[i]);
+            byBucket[i] = ((long) reduce(bucketHash.hash(source[i]), buckets) << 32) | i;
+        });
+        Arrays.parallelSort(byBucket);
+        for (long entry : byBucket) {
+            start[(int) (entry >>> 32) + 1]++;
+        }
+        for (int b = 0; b < buckets; b++) {
+            start[b + 1] += start[b];
+        }
+
+        // Largest buckets first, while most cells are still free. Buckets are small, so count them by size.
+        for (int b = 0; b < buckets; b++) {
+            maxSize = Math.max(maxSize, start[b + 1] - start[b]);
+        }
+        tried = new int[maxSize];
+        bySize = new int[maxSize + 2];
+        for (int b = 0; b < buckets; b++) {
+            bySize[maxSize - (start[b + 1] - start[b]) + 1]++;
+        }
+        for (int i = 0; i <= maxSize; i++) {
+            bySize[i + 1] += bySize[i];
+        }
+        for (int b = 0; b < buckets; b++) {
+            order[bySize[maxSize - (start[b + 1] - start[b])]++] = b;
+        }
+        for (int b : order) {
+            int size = start[b + 1] - start[b];
+            if (size == 0) {
+                break;
+            }
+            for (int k = 1; k < size; k++) {
+                for (int j = 0; j < k; j++) {
+                    int first = (int) byBucket[start[b] + j];
+                    int second = (int) byBucket[start[b] + k];
+                    if (cellHashes[first] == cellHashes[second] && source[first].equals(source[second])) {
+                        // Equal keys collide under every pilot and every seed, so there is no point in searching.
+                        throw new IllegalArgumentException("Key " + source[first] + " was provided more than once.");
+                    }
+                }
+            }
+            int pilot = 0;
+            search:
+            for (; pilot < MAX_PILOT; pilot++) {
+                for (int k = 0; k < size; k++) {
+                    int cell = cellOf(cellHashes[(int) byBucket[start[b] + k]], pilot, m);
+                    if (taken[cell]) {
+                        continue search;
+                    }
+                    for (int j = 0; j < k; j++) {
+                        if (tried[j] == cell) {
+                            continue search;
+                        }
+                    }
+                    tried[k] = cell;
+                }
+                break;
+            }
+            if (pilot == MAX_PILOT) {
+                return null;
+            }
+            pilots[b] = pilot;
+            for (int k = 0; k < size; k++) {
+                taken[tried[k]] = true;
+                cells[(int) byBucket[start[b] + k]] = tried[k];
+            }
+        }
+
+        // Exactly as many cells below n are free as cells past it are taken: send the latter to the former.
+        for (int cell = n, hole = 0; cell < m; cell++) {
+            if (taken[cell]) {
+                while (taken[hole]) {
+                    hole++;
+                }
+                remap[cell - n] = hole++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (cells[i] >= n) {
+                cells[i] = remap[cells[i] - n];
+            }
+        }
+        return cells;
+    }
+
+    private PerfectHashTable(String[] sourceKeys, String[] sourceValues) {
+        int n = sourceKeys.length;
+        int[] cells = null;
+        int seed = FIRST_SEED;
+
+        keys = new String[n];
+        values = new String[n];
+        pilots = new int[Math.max(1, (n + BUCKET_SIZE - 1) / BUCKET_SIZE)];
+        remap = new int[(int) Math.ceil(n / LOAD_FACTOR) - n];
+        for (int attempt = 0; cells == null; attempt++) {
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IllegalStateException("Could not build a perfect hash function over " + n + " keys.");
+            }
+            seed = FIRST_SEED + attempt * 0x9E3779B9;
+            Arrays.fill(pilots, 0);
+            cells = build(sourceKeys, HashFunction.murmur3(seed), HashFunction.murmur3(~seed), pilots, remap);
+        }
+        bucketHash = HashFunction.murmur3(seed);
+        cellHash = HashFunction.murmur3(~seed);
+        for (int i = 0; i < n; i++) {
+            keys[cells[i]] = sourceKeys[i];
+            values[cells[i]] = sourceValues[i];
+        }
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Builds a {@link PerfectHashTable} over the current records of another {@link HashTable}. Later changes to that
+     * table are not reflected in the result. The records are the ones that {@link HashTable#forEach(BiConsumer)}
+     * visits, whatever {@link HashTable#size()} says, and a key that it visits more than once appears once, with the
+     * value that {@link HashTable#lookup(String)} returns for it.
+     * @param table The table whose records will be in the result.
+     * @return A read-only {@link PerfectHashTable} holding the records of table.
+     * @throws IllegalStateException in the astronomically unlikely case that no perfect hash function was found
+     * with any of the seeds tried.
+     */
+    public static PerfectHashTable of(HashTable table) {
+        String[][] records = {new String[Math.max(16, table.size())], new String[Math.max(16, table.size())]};
+        Set<String> seen = new HashSet<>();
+        Set<String> repeated = new HashSet<>();
+        int[] n = {0};
+        table.forEach((key, value) -> {
+            if (!seen.add(key)) {
+                repeated.add(key);
+                return;
+            }
+            if (n[0] == records[0].length) {
+                records[0] = Arrays.copyOf(records[0], 2 * n[0]);
+                records[1] = Arrays.copyOf(records[1], 2 * n[0]);
+            }
+            records[0][n[0]] = key;
+            records[1][n[0]] = value;
+            n[0]++;
+        });
+        if (!repeated.isEmpty()) {
+            for (int i = 0; i < n[0]; i++) {
+                if (repeated.contains(records[0][i])) {
+                    records[1][i] = table.lookup(records[0][i]);
+                }
+            }
+        }
+        return new PerfectHashTable(Arrays.copyOf(records[0], n[0]), Arrays.copyOf(records[1], n[0]));
+    }
+
+    /**
+     * Always throws, since a {@link PerfectHashTable} is read-only.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        throw new UnsupportedOperationException("put(): PerfectHashTable is read-only.");
+    }
+
+    @Override
+    public Probes get(String key) {
+        if (key == null || keys.length == 0) {
+            return new Probes(null, 0);
+        }
+        return new Probes(lookup(key), 1);
+    }
+
+    @Override
+    public String lookup(String key) {
+        int cell;
+        if (key == null || keys.length == 0) {
+            return null;
+        }
+        cell = cellOf(key);
+        return key.equals(keys[cell]) ? values[cell] : null;
+    }
+
+    /**
+     * Always throws, since a {@link PerfectHashTable} is read-only.
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public Probes remove(String key) {
+        throw new UnsupportedOperationException("remove(): PerfectHashTable is read-only.");
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return lookup(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (String v : values) {
+                if (v.equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Returns the number of cells of this, which is the number of records, since the hash function is minimal.
+     * @return {@link #size()}.
+     */
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+}
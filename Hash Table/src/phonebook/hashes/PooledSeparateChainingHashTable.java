@@ -0,0 +1,362 @@
+package phonebook.hashes;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import phonebook.utils.KVPairList;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link PooledSeparateChainingHashTable} is a {@link HashTable} that implements <b>Separate Chaining</b>, exactly
+ * like {@link SeparateChainingHashTable}, but without a {@link KVPairList} per bucket. All entries live in a single
+ * <b>pool</b> of parallel arrays (keys, values, cached hash codes and the index of the next entry in the same chain),
+ * and every bucket is just the {@code int} index of the first entry of its chain. Compared to
+ * {@link SeparateChainingHashTable}, which allocates a list per bucket up front and a node and a {@link phonebook.utils.KVPair}
+ * per entry, this means:</p>
+ * <ol>
+ *     <li>No objects are allocated per entry or per bucket; an empty bucket costs a single {@code int}.</li>
+ *     <li>Walking a chain compares cached hash codes before it touches a key {@link String}, and follows indices into
+ *     arrays instead of pointers to nodes scattered around the heap.</li>
+ *     <li>Cells freed by {@link #remove(String)} are kept on a free list and reused by later insertions, so the pool
+ *     only ever grows to the largest number of entries the table has held.</li>
+ * </ol>
+ *
+ * <p>Like {@link SeparateChainingHashTable}, the number of buckets is always prime, as given by {@link PrimeGenerator},
+ * and {@link #enlarge()} and {@link #shrink()}, which re-link the existing entries using their cached hash codes, are
+ * called both by users and by the table itself, to keep its load factor between the limits given to
+ * {@link #PooledSeparateChainingHashTable(double, double, HashFunction)}. Unlike it, inserting a key that already
+ * exists <b>updates</b> its value instead of adding a second entry for it.</p>
+ *
+ * @author Yosefe Eshete
+ * @see HashTable
+ * @see SeparateChainingHashTable
+ * @see CompactLinearProbingHashTable
+ * @see CollisionResolver
+ */
+public class PooledSeparateChainingHashTable implements HashTable {
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    private static final int NONE = -1; // End of a chain, or of the free list.
+
+    private int[] buckets;  // Index into the pool of the first entry of every chain, or NONE.
+
+    private String[] keys;
+    private String[] values;
+    private int[] hashes;
+    private int[] next;     // Next entry in the same chain (or in the free list, for free cells).
+
+    private int used;       // Cells of the pool that have ever been handed out.
+    private int free;       // Head of the free list.
+    private int count;
+    private PrimeGenerator primeGenerator;
+    private HashFunction hashFunction;
+    private double maxLoadFactor;
+    private double minLoadFactor;
+    private int initialCapacity;
+
+    // Same as the hash of SeparateChainingHashTable, but without reducing it mod the capacity, so that it can be cached.
+    private int fullHash(String key) {
+        return hashFunction.hash(key) & 0x7fffffff;
+    }
+
+    private static int[] emptyBuckets(int length) {
+        int[] b = new int[length];
+        Arrays.fill(b, NONE);
+        return b;
+    }
+
+    private void growPool(int cells) {
+        keys = Arrays.copyOf(keys, cells);
+        values = Arrays.copyOf(values, cells);
+        hashes = Arrays.copyOf(hashes, cells);
+        next = Arrays.copyOf(next, cells);
+    }
+
+    // Hands out a cell of the pool, preferring cells freed by earlier deletions.
+    private int allocate() {
+        int cell;
+        if (free != NONE) {
+            cell = free;
+            free = next[cell];
+            return cell;
+        }
+        if (used == keys.length) {
+            growPool(Math.max(2 * keys.length, 1));
+        }
+        return used++;
+    }
+
+    // Re-links every chain into a new array of buckets. No entry moves within the pool.
+    private void rehash(int length) {
+        int[] newBuckets = emptyBuckets(length);
+        int cell;
+        int following;
+        int loc;
+
+        for (int i = 0; i < buckets.length; i++) {
+            cell = buckets[i];
+            while (cell != NONE) {
+                following = next[cell];
+                loc = hashes[cell] % length;
+                next[cell] = newBuckets[loc];
+                newBuckets[loc] = cell;
+                cell = following;
+            }
+        }
+        buckets = newBuckets;
+    }
+
+    /* **************************************** */
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS:  */
+    /* **************************************** */
+
+    /**
+     *  Default constructor. Initializes the internal storage with a size equal to the default of {@link PrimeGenerator}.
+     */
+    public PooledSeparateChainingHashTable() {
+        this(HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with a hash function. Initializes the internal storage with a size equal to the default of
+     * {@link PrimeGenerator}, and resizes automatically between {@link SeparateChainingHashTable#DEFAULT_MIN_LOAD_FACTOR}
+     * and {@link SeparateChainingHashTable#DEFAULT_MAX_LOAD_FACTOR}.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public PooledSeparateChainingHashTable(HashFunction hashFunction) {
+        this(SeparateChainingHashTable.DEFAULT_MAX_LOAD_FACTOR, SeparateChainingHashTable.DEFAULT_MIN_LOAD_FACTOR,
+                hashFunction);
+    }
+
+    /**
+     * Constructor with load factor limits and a hash function, which work as in
+     * {@link SeparateChainingHashTable#SeparateChainingHashTable(double, double, HashFunction)}.
+     * @param maxLoadFactor The average chain length above which {@link #put(String, String)} enlarges the table.
+     * @param minLoadFactor The average chain length below which {@link #remove(String)} shrinks the table.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     * @throws IllegalArgumentException if maxLoadFactor is not positive, if minLoadFactor is negative, or if
+     * minLoadFactor is greater than a quarter of maxLoadFactor.
+     */
+    public PooledSeparateChainingHashTable(double maxLoadFactor, double minLoadFactor, HashFunction hashFunction) {
+        if (!(maxLoadFactor > 0) || !(minLoadFactor >= 0) || 4 * minLoadFactor > maxLoadFactor)
+            throw new IllegalArgumentException("Provided: maxLoadFactor=" + maxLoadFactor + " and minLoadFactor=" + minLoadFactor);
+        this.maxLoadFactor = maxLoadFactor;
+        this.minLoadFactor = minLoadFactor;
+        this.hashFunction = hashFunction;
+        primeGenerator = new PrimeGenerator();
+        buckets = emptyBuckets(primeGenerator.getCurrPrime());
+        keys = new String[buckets.length];
+        values = new String[buckets.length];
+        hashes = new int[buckets.length];
+        next = new int[buckets.length];
+        used = 0;
+        free = NONE;
+        count = 0;
+        initialCapacity = buckets.length;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, at the end of its chain, or updates the value of key if it is
+     * already in this.
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The {@link phonebook.utils.Probes} with the value added and the number of entries of the chain inspected,
+     * counting the new one.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        int hash;
+        int loc;
+        int cell;
+        int last = NONE;
+        int probeCount = 1;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        hash = fullHash(key);
+        loc = hash % buckets.length;
+        for (cell = buckets[loc]; cell != NONE; cell = next[cell]) {
+            if (hashes[cell] == hash && keys[cell].equals(key)) {
+                values[cell] = value;
+                return new Probes(value, probeCount);
+            }
+            probeCount++;
+            last = cell;
+        }
+
+        cell = allocate();
+        keys[cell] = key;
+        values[cell] = value;
+        hashes[cell] = hash;
+        next[cell] = NONE;
+        if (last == NONE) {
+            buckets[loc] = cell;
+        } else {
+            next[last] = cell;
+        }
+        count++;
+        if (count > maxLoadFactor * buckets.length) {
+            enlarge();
+        }
+        return new Probes(value, probeCount);
+    }
+
+    /**
+     * Makes room in the pool for the given number of entries, and enlarges the table, in a single step, to as many
+     * buckets as they need to stay within the maximum load factor, so that inserting them neither copies the pool
+     * around nor re-links the chains.
+     * @param entries The number of entries the table should be able to hold without growing.
+     * @return 0, since no entries are re-inserted.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int length = buckets.length;
+        if (entries > keys.length) {
+            growPool(entries);
+        }
+        while (entries > maxLoadFactor * length) {
+            length = primeGenerator.getNextPrime();
+        }
+        if (length != buckets.length) {
+            rehash(length);
+        }
+        return 0;
+    }
+
+    /**
+     * Searches for key in its chain.
+     * @param key The key to search for.
+     * @return The {@link phonebook.utils.Probes} with the value of key (or {@code null}) and the position of key in its
+     * chain, or the length of the chain plus one if key is not in it.
+     */
+    @Override
+    public Probes get(String key) {
+        int hash;
+        int probeCount = 1;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        hash = fullHash(key);
+        for (int cell = buckets[hash % buckets.length]; cell != NONE; cell = next[cell]) {
+            if (hashes[cell] == hash && keys[cell].equals(key)) {
+                return new Probes(values[cell], probeCount);
+            }
+            probeCount++;
+        }
+        return new Probes(null, probeCount);
+    }
+
+    @Override
+    public String lookup(String key) {
+        int hash;
+
+        if (key != null) {
+            hash = fullHash(key);
+            for (int cell = buckets[hash % buckets.length]; cell != NONE; cell = next[cell]) {
+                if (hashes[cell] == hash && keys[cell].equals(key)) {
+                    return values[cell];
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Probes remove(String key) {
+        int hash;
+        int loc;
+        int previous = NONE;
+        int probeCount = 1;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        hash = fullHash(key);
+        loc = hash % buckets.length;
+        for (int cell = buckets[loc]; cell != NONE; cell = next[cell]) {
+            if (hashes[cell] == hash && keys[cell].equals(key)) {
+                value = values[cell];
+                if (previous == NONE) {
+                    buckets[loc] = next[cell];
+                } else {
+                    next[previous] = next[cell];
+                }
+                keys[cell] = null;
+                values[cell] = null;
+                next[cell] = free;
+                free = cell;
+                count--;
+                if (count < minLoadFactor * buckets.length && buckets.length > initialCapacity) {
+                    shrink();
+                }
+                return new Probes(value, probeCount);
+            }
+            probeCount++;
+            previous = cell;
+        }
+        return new Probes(null, probeCount);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return lookup(key) != null;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (int i = 0; i < used; i++) {
+                if (keys[i] != null && values[i].equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < used; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int capacity() {
+        return buckets.length;
+    }
+
+    /**
+     * Enlarges this hash table to the next prime number of buckets, as given by {@link PrimeGenerator#getNextPrime()}.
+     * Entries stay where they are in the pool; only the chains are re-linked.
+     * @see PrimeGenerator#getNextPrime()
+     */
+    public void enlarge() {
+        rehash(primeGenerator.getNextPrime());
+    }
+
+    /**
+     * Shrinks this hash table to the previous prime number of buckets, as given by {@link PrimeGenerator#getPreviousPrime()}.
+     * Entries stay where they are in the pool; only the chains are re-linked.
+     * @see PrimeGenerator#getPreviousPrime()
+     */
+    public void shrink() {
+        rehash(primeGenerator.getPreviousPrime());
+    }
+}
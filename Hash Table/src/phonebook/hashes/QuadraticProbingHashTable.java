@@ -20,6 +20,10 @@ import phonebook.utils.Probes;
  * space in between memory probes allows other keys to be inserted without many collisions. The tradeoff
  * is that, in doing so, {@link QuadraticProbingHashTable} sacrifices <em>cache locality</em>.</p>
  *
+ * <p>Under soft deletion, insertions reuse the first tombstone of their probe sequence, and the table is
+ * {@link #compact() compacted} in place once tombstones take up more than {@link OpenAddressingHashTable#MAX_TOMBSTONE_RATIO}
+ * of it.</p>
+ *
  * @author Yosefe Eshete
  *
  * @see HashTable
@@ -34,6 +38,14 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
     /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
     /* ********************************************************************/
 
+    // Soft deletion: leaves a tombstone in cell, and compacts the table if there are too many of them.
+    // Returns the probes made by the compaction.
+    private int softDelete(int cell) {
+        table[cell] = TOMBSTONE;
+        count--;
+        return compactIfNeeded();
+    }
+
     /* ******************************************/
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
     /* **************************************** */
@@ -41,7 +53,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
 
         int loc; 
         int reLoc; 
-        KVPair[] newTable = new KVPair[primeGenerator.getNextPrime()]; 
+        KVPair[] newTable = new KVPair[nextCapacity()]; 
         resizeProbe = 0;  
         count = 0;       
         for (int i = 0; i < newTable.length; i++) {
@@ -51,7 +63,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
         for (int i = 0; i < table.length; i++) {
             resizeProbe++;
             if (table[i] != null && !table[i].equals(TOMBSTONE)) {
-                loc = (table[i].getKey().hashCode() & 0x7fffffff) % newTable.length;
+                loc = index(hashOf(table[i].getKey()), newTable.length);
                 resizeProbe++;
                 if (newTable[loc] == null ) {
                     newTable[loc] = new KVPair(table[i].getKey(), table[i].getValue());
@@ -59,7 +71,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
                     
                 } else {
                     for (int z = 1; z < newTable.length; z++) {
-                        reLoc = (loc + ((z+1) - 1) + (int) Math.pow(( (z+1) - 1), 2) ) % newTable.length; 
+                        reLoc = quadraticProbe(loc, z, newTable.length); 
                         resizeProbe++;
 
                         if (newTable[reLoc] == null ) {
@@ -71,6 +83,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
                 }
             }
         }
+        occupied = count;
         return newTable;
     }
 
@@ -82,15 +95,40 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
      *               we want soft deletion, {@code false} otherwise.
      */
     public QuadraticProbingHashTable(boolean soft) {
-    //    throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
+        this(soft, CapacityPolicy.PRIME);
+    }
+
+    /**
+     * Constructor with soft deletion and capacity policy options. Initializes the internal storage with the initial capacity
+     * of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     */
+    public QuadraticProbingHashTable(boolean soft, CapacityPolicy policy) {
+        this(soft, policy, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with soft deletion, capacity policy and hash function options. Initializes the internal storage with the
+     * initial capacity of the provided {@link CapacityPolicy}.
+     * @param soft A boolean indicator of whether we want to use soft deletion or not. {@code true} if and only if
+     *               we want soft deletion, {@code false} otherwise.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public QuadraticProbingHashTable(boolean soft, CapacityPolicy policy, HashFunction hashFunction) {
         primeGenerator = new PrimeGenerator();
-        table = new KVPair[primeGenerator.getCurrPrime()];
+        capacityPolicy = policy;
+        this.hashFunction = hashFunction;
+        table = new KVPair[initialCapacity()];
         softFlag = soft; 
 
         for (int i = 0; i < table.length; i++) {
             table[i] = null;
         }
         count = 0; 
+        occupied = 0;
     }
 
     @Override
@@ -105,31 +143,33 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
             throw new IllegalArgumentException();
         }
 
-        if (resizeBool) {
+        if (resizeBool && compactInsteadOfResizing()) {
+            probeCount += compact();
+        } else if (resizeBool) {
             table = QPresize(table);
             probeCount += resizeProbe;
-        } 
+        }
         resizeBool = false;
         loc = hash(key); 
         
         for (int i = 0; i < table.length; i++) {
             probeCount++;
-            reLoc = (loc + ((i+1) - 1) + (int) Math.pow(((i+1)-1), 2) )% table.length; 
+            reLoc = quadraticProbe(loc, i, table.length); 
             if (table[reLoc] == null ) {
                 table[reLoc] = new KVPair(key, value);
                 count++;
+                occupied++;
                 break;
             }
-        }
-        
-        
-        loc = 0;
-        for (int i = 0; i < table.length; i++) {
-            if (table[i] != null) {
-                loc++;
+            if (table[reLoc] == TOMBSTONE) {
+                // Reuse the first tombstone on the way; occupied stays the same.
+                table[reLoc] = new KVPair(key, value);
+                count++;
+                break;
             }
         }
-        if ( (float) loc/this.capacity() >= .5 ) {
+
+        if ( (float) occupied/this.capacity() >= .5 ) {
             resizeBool = true;
         }
         probe = new Probes(value, probeCount);
@@ -148,7 +188,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
         if (key != null) {
             loc = hash(key);
             for (int i = 0; i < table.length; i++) {
-                linProbe = (loc + ((i+1) - 1) + (int) Math.pow(((i+1)-1), 2)) % table.length; 
+                linProbe = quadraticProbe(loc, i, table.length); 
                 if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
                     ret = new Probes(table[linProbe].getValue(), i+1);
                     break;
@@ -163,6 +203,26 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
 
     }
 
+    @Override
+    public String lookup(String key) {
+        int loc;
+        int quadProbe;
+
+        if (key != null) {
+            loc = hash(key);
+            for (int i = 0; i < table.length; i++) {
+                quadProbe = quadraticProbe(loc, i, table.length);
+                if (table[quadProbe] == null) {
+                    break;
+                }
+                if (table[quadProbe] != TOMBSTONE && table[quadProbe].getKey().equals(key)) {
+                    return table[quadProbe].getValue();
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public Probes remove(String key) {
     //    throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
@@ -181,16 +241,12 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
             if (softFlag) {
                 if (table[loc] != null ) {
                     if (table[loc].getKey().equals(key)) {
-                        ret = new Probes(table[loc].getValue(), 1);
-                        table[loc] = TOMBSTONE;
-                        count--;
+                        ret = new Probes(table[loc].getValue(), 1 + softDelete(loc));
                     } else {
                         for (int i = 1; i < table.length; i++) {
-                            linProbe = (loc + ((i+1) - 1) + (int) Math.pow(((i+1)-1), 2)) % table.length; 
+                            linProbe = quadraticProbe(loc, i, table.length); 
                             if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
-                                ret = new Probes(table[linProbe].getValue(), i+1);
-                                table[linProbe] = TOMBSTONE;
-                                count--;
+                                ret = new Probes(table[linProbe].getValue(), i + 1 + softDelete(linProbe));
                                 break;
                             }
                         }
@@ -200,7 +256,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
                 }
             } else {
                 for (int i = 0; i < table.length; i++) {
-                    linProbe = (loc + ((i+1) - 1) + (int) Math.pow(((i+1)-1), 2)) % table.length; 
+                    linProbe = quadraticProbe(loc, i, table.length); 
 
                     if (table[linProbe] == null) {
                         hardCount += i+1;
@@ -211,6 +267,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
                         val = table[linProbe].getValue();
                         table[linProbe] = null;
                         count--;
+                        occupied--;
                         hardCount += i+1;
                         break;
                     }  
@@ -224,6 +281,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
                             keyCopy = table[i].getKey();
                             valueCopy = table[i].getValue();
                             table[i] = null;
+                            occupied--;
                             hardCount += this.put(keyCopy, valueCopy).getProbes();
                         }
                     }
@@ -250,7 +308,7 @@ public class QuadraticProbingHashTable extends OpenAddressingHashTable {
                         ret = true;
                     } else {
                         for (int i = 1; i < table.length; i++) {
-                            linProbe =  (loc + ((i+1) - 1) + (int) Math.pow(((i+1)-1), 2)) % table.length; 
+                            linProbe = quadraticProbe(loc, i, table.length); 
                             if ( table[linProbe] != null && !table[linProbe].equals(TOMBSTONE) && table[linProbe].getKey().equals(key)) {
                                 ret = true;
                                 break;
@@ -0,0 +1,290 @@
+package phonebook.hashes;
+
+import phonebook.utils.KVPair;
+import phonebook.utils.PrimeGenerator;
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link RobinHoodHashTable} is an Openly Addressed {@link HashTable} implemented with <b>Robin Hood Hashing</b>
+ * as its collision resolution strategy. Like {@link OrderedLinearProbingHashTable}, it probes linearly and reorders
+ * the collision chains on insertion, but instead of ordering them by <b>key</b>, it orders them by <b>probe distance</b>,
+ * i.e the number of cells an entry sits away from the cell it hashed to. An inserted key that has travelled further than
+ * the entry it meets &quot; steals &quot; that entry's cell, and the displaced entry continues probing in its place.
+ * This evens out probe distances across all keys, so that the longest searches are much shorter than under plain
+ * Linear Probing at the same load factor, and searches destined to fail can stop as soon as they meet an entry
+ * closer to home than themselves.</p>
+ *
+ * <p>Deletions are always &quot; hard &quot;: instead of leaving a tombstone behind, the entries following the deleted
+ * one in its cluster are shifted one cell back, until we meet an empty cell or an entry already sitting in its home cell.
+ * Inserting a key that already exists <b>updates</b> its value.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see OrderedLinearProbingHashTable
+ * @see CollisionResolver
+ */
+public class RobinHoodHashTable extends OpenAddressingHashTable {
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    // The hashOf() of the key in every cell of table, so that probing never hashes a stored key again: a HashFunction,
+    // unlike String.hashCode(), does not cache its result.
+    private int[] hashes;
+
+    // How many cells the entry at loc sits away from the cell its key hashes to in table.
+    private static int distance(int home, int loc, int length) {
+        return (loc - home + length) % length;
+    }
+
+    private int distance(int loc) {
+        return distance(index(hashes[loc], table.length), loc, table.length);
+    }
+
+    // Places a key that is known not to be in table, displacing richer entries on the way. Returns the probes made.
+    private int place(KVPair[] table, int[] hashes, KVPair pair, int hash) {
+        int loc = index(hash, table.length);
+        int dist = 0;
+        int probeCount = 0;
+        int otherDist;
+        KVPair displaced;
+        int displacedHash;
+
+        for (int i = 0; i < table.length; i++) {
+            probeCount++;
+            if (table[loc] == null) {
+                table[loc] = pair;
+                hashes[loc] = hash;
+                break;
+            }
+            otherDist = distance(index(hashes[loc], table.length), loc, table.length);
+            if (otherDist < dist) {
+                displaced = table[loc];
+                displacedHash = hashes[loc];
+                table[loc] = pair;
+                hashes[loc] = hash;
+                pair = displaced;
+                hash = displacedHash;
+                dist = otherDist;
+            }
+            loc = linearProbe(loc, 1, table.length);
+            dist++;
+        }
+        return probeCount;
+    }
+
+    // Returns the cell holding key, or -(number of probes) if key is not in the table.
+    private int find(String key, int hash) {
+        int loc = index(hash, table.length);
+        for (int i = 0; i < table.length; i++) {
+            if (table[loc] == null || distance(loc) < i) {
+                return -(i + 1);
+            }
+            if (hashes[loc] == hash && table[loc].getKey().equals(key)) {
+                return loc;
+            }
+            loc = linearProbe(loc, 1, table.length);
+        }
+        return -table.length;
+    }
+
+    // Moves every entry into arrays of the given capacity, with their cached hashes. Returns the probes made.
+    private int moveTo(int capacity) {
+        KVPair[] newTable = new KVPair[capacity];
+        int[] newHashes = new int[capacity];
+        int probeCount = 0;
+        for (int i = 0; i < table.length; i++) {
+            probeCount++;
+            if (table[i] != null) {
+                probeCount += place(newTable, newHashes, table[i], hashes[i]);
+            }
+        }
+        table = newTable;
+        hashes = newHashes;
+        occupied = count;
+        return probeCount;
+    }
+
+    /**
+     * Moves every entry into a new array of the given capacity, like {@link OpenAddressingHashTable#rehash(int)} but
+     * without hashing any key again.
+     * @param capacity The capacity of the new array.
+     * @return The number of probes made by re-inserting the current entries.
+     */
+    @Override
+    protected int rehash(int capacity) {
+        resizeBool = false;
+        return moveTo(capacity);
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Default constructor. Initializes the internal storage with a size equal to the starting value of  {@link PrimeGenerator}.
+     */
+    public RobinHoodHashTable() {
+        this(CapacityPolicy.PRIME);
+    }
+
+    /**
+     * Constructor with a capacity policy option. Initializes the internal storage with the initial capacity
+     * of the provided {@link CapacityPolicy}.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     */
+    public RobinHoodHashTable(CapacityPolicy policy) {
+        this(policy, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with capacity policy and hash function options. Initializes the internal storage with the initial
+     * capacity of the provided {@link CapacityPolicy}.
+     * @param policy The {@link CapacityPolicy} that decides the capacities of this table and how keys are mapped to cells.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public RobinHoodHashTable(CapacityPolicy policy, HashFunction hashFunction) {
+        primeGenerator = new PrimeGenerator();
+        capacityPolicy = policy;
+        this.hashFunction = hashFunction;
+        table = new KVPair[initialCapacity()];
+        hashes = new int[table.length];
+        softFlag = false;
+        count = 0;
+        occupied = 0;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this. The container should <b>not</b> allow for {@code null}
+     * keys and values. If key is already in the table, its value is replaced. Entries which are closer to their home
+     * cell than key is to its own, at the point where key meets them, give up their cell to key and continue probing.
+     *
+     * Instances of {@link RobinHoodHashTable} resize on the insertion that follows the one which made them at least
+     * half full, like {@link LinearProbingHashTable}.
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The {@link phonebook.utils.Probes} with the value added and the number of probes it makes.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        int hash;
+        int loc;
+        int probeCount = 0;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        if (resizeBool) {
+            probeCount += moveTo(nextCapacity());
+        }
+        resizeBool = false;
+
+        hash = hashOf(key);
+        loc = find(key, hash);
+        if (loc >= 0) {
+            table[loc].setValue(value);
+            probeCount += distance(loc) + 1;
+        } else {
+            probeCount += place(table, hashes, new KVPair(key, value), hash);
+            count++;
+            occupied++;
+        }
+
+        if (2 * occupied >= table.length) {
+            resizeBool = true;
+        }
+        return new Probes(value, probeCount);
+    }
+
+    @Override
+    public Probes get(String key) {
+        int loc;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        loc = find(key, hashOf(key));
+        if (loc < 0) {
+            return new Probes(null, -loc);
+        }
+        return new Probes(table[loc].getValue(), distance(loc) + 1);
+    }
+
+    @Override
+    public String lookup(String key) {
+        int loc = (key == null) ? -1 : find(key, hashOf(key));
+        return (loc < 0) ? null : table[loc].getValue();
+    }
+
+    /**
+     * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> the {@link phonebook.utils.KVPair} from the table.
+     * If key does not exist in the database or if key = {@code null}, this method returns {@code null}. The entries that follow
+     * key in its cluster are shifted one cell back, so no tombstones are ever left in the table.
+     *
+     * @param key The key to search for.
+     * @return The {@link phonebook.utils.Probes} with associated value and the number of probe used. If the key is {@code null}, return value {@code null}
+     * and 0 as number of probes; if the key doesn't exist in the database, return {@code null} and the number of probes used.
+     */
+    @Override
+    public Probes remove(String key) {
+        int loc;
+        int next;
+        int probeCount;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        loc = find(key, hashOf(key));
+        if (loc < 0) {
+            return new Probes(null, -loc);
+        }
+        probeCount = distance(loc) + 1;
+        value = table[loc].getValue();
+
+        next = linearProbe(loc, 1, table.length);
+        while (table[next] != null && distance(next) > 0) {
+            probeCount++;
+            table[loc] = table[next];
+            hashes[loc] = hashes[next];
+            loc = next;
+            next = linearProbe(next, 1, table.length);
+        }
+        table[loc] = null;
+        count--;
+        occupied--;
+        return new Probes(value, probeCount + 1); // The cell that stopped the shifting.
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && find(key, hashOf(key)) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] != null && table[i].getValue().equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int capacity() {
+        return table.length;
+    }
+}
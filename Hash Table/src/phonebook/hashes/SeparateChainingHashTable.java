@@ -1,9 +1,9 @@
 package phonebook.hashes;
 
-import java.util.Iterator;
-
 //import org.graalvm.compiler.lir.alloc.lsra.LinearScanEliminateSpillMovePhase_OptionDescriptors;
 
+import java.util.function.BiConsumer;
+
 import phonebook.exceptions.UnimplementedMethodException;
 import phonebook.utils.KVPair;
 import phonebook.utils.KVPairList;
@@ -18,6 +18,15 @@ import phonebook.utils.Probes;
  * Open Addressing methods, like those implemented in {@link LinearProbingHashTable} and {@link QuadraticProbingHashTable}
  * are more desirable in practice, since they use the original space of the table for the collision chains themselves.</p>
  *
+ * <p>{@link #enlarge()} and {@link #shrink()} can be called at any time, but the table also calls them on its own,
+ * based on its <b>load factor</b>, i.e the average chain length: {@link #put(String, String)} enlarges it once the load
+ * factor exceeds a maximum, and {@link #remove(String)} shrinks it once the load factor falls below a minimum (but
+ * never below its initial capacity). Both limits are given to
+ * {@link #SeparateChainingHashTable(double, double)}. Since enlarging roughly halves the load factor and shrinking
+ * roughly doubles it, the minimum must be at most a quarter of the maximum; this leaves a wide band in which
+ * neither resizing is triggered, so that alternating insertions and deletions around either limit cannot make
+ * the table resize back and forth.</p>
+ *
  * @author Yosefe Eshete
  * @see HashTable
  * @see SeparateChainingHashTable
@@ -35,26 +44,95 @@ public class SeparateChainingHashTable implements HashTable{
     private int count;
     private PrimeGenerator primeGenerator;
 
-    // We mask the top bit of the default hashCode() to filter away negative values.
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    /**
+     * The maximum load factor used by {@link #SeparateChainingHashTable()}.
+     */
+    public static final double DEFAULT_MAX_LOAD_FACTOR = 1.0;
+
+    /**
+     * The minimum load factor used by {@link #SeparateChainingHashTable()}.
+     */
+    public static final double DEFAULT_MIN_LOAD_FACTOR = 0.25;
+
+    private double maxLoadFactor;
+    private double minLoadFactor;
+    private int initialCapacity;
+    private HashFunction hashFunction;
+
+    // Re-distributes every entry over a new array of buckets, by the hash of its key.
+    private void rehash(int length) {
+        KVPairList[] newTable = new KVPairList[length];
+        int loc;
+
+        for (int i = 0; i < newTable.length; i++) {
+            newTable[i] = new KVPairList();
+        }
+        for (int i = 0; i < table.length; i++) {
+            for (KVPair kv : table[i]) {
+                // Not kv.hashCode(): KVPair doesn't override it, so that would scatter keys away from their bucket.
+                loc = (hashFunction.hash(kv.getKey()) & 0x7fffffff) % newTable.length;
+                newTable[loc].addBack(kv.getKey(), kv.getValue());
+            }
+        }
+        this.table = newTable;
+    }
+
+    // We mask the top bit of the hash code to filter away negative values.
     // Have to copy over the implementation from OpenAddressingHashTable; no biggie.
     private int hash(String key){
-        return (key.hashCode() & 0x7fffffff) % table.length;
+        return (hashFunction.hash(key) & 0x7fffffff) % table.length;
     }
 
     /* **************************************** */
     /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS:  */
     /* **************************************** */
     /**
-     *  Default constructor. Initializes the internal storage with a size equal to the default of {@link PrimeGenerator}.
+     *  Default constructor. Initializes the internal storage with a size equal to the default of {@link PrimeGenerator},
+     *  and resizes automatically between {@link #DEFAULT_MIN_LOAD_FACTOR} and {@link #DEFAULT_MAX_LOAD_FACTOR}.
      */
     public SeparateChainingHashTable(){
-        //throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
+        this(DEFAULT_MAX_LOAD_FACTOR, DEFAULT_MIN_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructor with load factor limits. Initializes the internal storage with a size equal to the default of
+     * {@link PrimeGenerator}. Pass {@link Double#POSITIVE_INFINITY} and 0 to only ever resize through explicit
+     * calls to {@link #enlarge()} and {@link #shrink()}.
+     * @param maxLoadFactor The average chain length above which {@link #put(String, String)} enlarges the table.
+     * @param minLoadFactor The average chain length below which {@link #remove(String)} shrinks the table.
+     * @throws IllegalArgumentException if maxLoadFactor is not positive, if minLoadFactor is negative, or if
+     * minLoadFactor is greater than a quarter of maxLoadFactor.
+     */
+    public SeparateChainingHashTable(double maxLoadFactor, double minLoadFactor){
+        this(maxLoadFactor, minLoadFactor, HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with load factor limits and a hash function. Initializes the internal storage with a size equal to
+     * the default of {@link PrimeGenerator}.
+     * @param maxLoadFactor The average chain length above which {@link #put(String, String)} enlarges the table.
+     * @param minLoadFactor The average chain length below which {@link #remove(String)} shrinks the table.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     * @throws IllegalArgumentException if maxLoadFactor is not positive, if minLoadFactor is negative, or if
+     * minLoadFactor is greater than a quarter of maxLoadFactor.
+     */
+    public SeparateChainingHashTable(double maxLoadFactor, double minLoadFactor, HashFunction hashFunction){
+        if (!(maxLoadFactor > 0) || !(minLoadFactor >= 0) || 4 * minLoadFactor > maxLoadFactor)
+            throw new IllegalArgumentException("Provided: maxLoadFactor=" + maxLoadFactor + " and minLoadFactor=" + minLoadFactor);
         primeGenerator = new PrimeGenerator();
         table = new KVPairList[primeGenerator.getCurrPrime()];
         for (int i = 0; i < table.length; i++) {
             table[i] = new KVPairList();
         }
-        count = 0; 
+        count = 0;
+        initialCapacity = table.length;
+        this.maxLoadFactor = maxLoadFactor;
+        this.minLoadFactor = minLoadFactor;
+        this.hashFunction = hashFunction;
     }
 
     @Override
@@ -71,6 +149,9 @@ public class SeparateChainingHashTable implements HashTable{
        //if (table[loc].isEmpty()) {
         table[loc].addBack(key, value);
         count++;
+        if (count > maxLoadFactor * table.length) {
+            enlarge();
+        }
        /*} else {
             
             if (table[loc].containsKey(key)) {
@@ -86,6 +167,24 @@ public class SeparateChainingHashTable implements HashTable{
 
     }
 
+    /**
+     * Enlarges the table, in a single step, to as many buckets as the given number of entries needs to stay within
+     * the maximum load factor, so that inserting them does not enlarge it over and over again.
+     * @param entries The number of entries the table should be able to hold without growing.
+     * @return 0, since no entries are re-inserted.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int length = table.length;
+        while (entries > maxLoadFactor * length) {
+            length = primeGenerator.getNextPrime();
+        }
+        if (length != table.length) {
+            rehash(length);
+        }
+        return 0;
+    }
+
     @Override
     public Probes get(String key) {
         //throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
@@ -102,6 +201,11 @@ public class SeparateChainingHashTable implements HashTable{
         return probe; 
     }
 
+    @Override
+    public String lookup(String key) {
+        return (key == null) ? null : table[hash(key)].lookup(key);
+    }
+
     @Override
     public Probes remove(String key) {
         // throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
@@ -117,6 +221,9 @@ public class SeparateChainingHashTable implements HashTable{
         probe = table[loc].removeByKey(key);
         if (probe.getValue() != null) {
             count--;
+            if (count < minLoadFactor * table.length && table.length > initialCapacity) {
+                shrink();
+            }
         }
 
         return probe; 
@@ -144,6 +251,15 @@ public class SeparateChainingHashTable implements HashTable{
         return false;
     }
 
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < table.length; i++) {
+            for (KVPair kv : table[i]) {
+                action.accept(kv.getKey(), kv.getValue());
+            }
+        }
+    }
+
     @Override
     public int size() {
         //throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
@@ -162,29 +278,7 @@ public class SeparateChainingHashTable implements HashTable{
      * @see PrimeGenerator#getNextPrime()
      */
     public void enlarge() {
-       // throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
-        KVPairList [] newTable = new KVPairList[primeGenerator.getNextPrime()];
-        int loc;
-        Iterator<KVPair> it;
-        KVPair kv;
-
-        for (int i = 0; i < newTable.length; i++) {
-            newTable[i] = new KVPairList();
-        }
-
-        for (int i = 0; i < table.length; i++) {
-            
-            if (!table[i].isEmpty()) {
-                it = table[i].iterator();
-                while(it.hasNext()){
-                    kv = it.next();
-                    loc = (kv.hashCode() & 0x7fffffff) % newTable.length;
-                    newTable[loc].addBack(kv.getKey(), kv.getValue());
-               }
-            }
-        }
-
-        this.table = newTable;
+        rehash(primeGenerator.getNextPrime());
     }
 
     /**
@@ -195,30 +289,6 @@ public class SeparateChainingHashTable implements HashTable{
      * @see PrimeGenerator#getPreviousPrime()
      */
     public void shrink(){
-        //throw new UnimplementedMethodException(); // ERASE THIS LINE AFTER IMPLEMENTING THIS METHOD!
-        KVPairList[] newTable = new KVPairList[primeGenerator.getPreviousPrime()];
-        int loc; 
-        Iterator<KVPair> it; 
-        KVPair kv; 
-
-        for (int i = 0; i < newTable.length; i++) {
-            newTable[i] = new KVPairList();
-        }
-        
-
-        for (int i = 0; i < table.length; i ++) {
-            
-            if(!table[i].isEmpty()) {
-                it = table[i].iterator();
-
-                while (it.hasNext()) {
-                    kv = it.next();
-                    loc = (kv.hashCode() & 0x7fffffff) % newTable.length;
-                    newTable[loc].addBack(kv.getKey(), kv.getValue());
-                }
-            }   
-
-        }
-        this.table = newTable;
+        rehash(primeGenerator.getPreviousPrime());
     }
 }
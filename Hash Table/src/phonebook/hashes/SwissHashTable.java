@@ -0,0 +1,394 @@
+package phonebook.hashes;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+import phonebook.utils.Probes;
+
+/**
+ * <p>{@link SwissHashTable} is an openly addressed {@link HashTable} laid out like the &quot;Swiss tables&quot; of
+ * Abseil. Next to the arrays of keys and values, it keeps one <b>control byte</b> per cell, which says whether the cell
+ * is empty, deleted, or full; a full cell's control byte also holds 7 bits of its key's hash code, its <b>tag</b>.
+ * Cells come in <b>groups</b> of 8, whose control bytes are packed into a single {@code long}, so that a search can
+ * compare its tag against a whole group at once with a few arithmetic operations (&quot;SIMD within a register&quot;)
+ * and only look at the keys whose tags match. Since two random tags only match 1 time out of 128, nearly all the
+ * {@link String}s a search touches are the one it is looking for: an unsuccessful search usually compares no key
+ * at all.</p>
+ *
+ * <p>The other 25 bits of the hash code pick the group where the search starts. Groups are probed in the order
+ * g, g + 1, g + 3, g + 6, ... (triangular numbers, mod the number of groups), and a search stops at the first group
+ * with an empty cell in it. The capacity is always a power of two, and the table grows once live entries plus deleted
+ * cells would make up more than {@link #MAX_LOAD_FACTOR} of it, which is much fuller than the 50&#37; of the other
+ * openly addressed tables. If most of those cells are deleted ones, the table is rehashed at the same capacity instead.
+ * Hash codes come from a {@link HashFunction} and are mixed before they are split into a group and a tag, since both
+ * need well distributed bits.</p>
+ *
+ * <p>Deletions only leave a tombstone behind when they have to: a cell can go back to empty whenever its group
+ * has an empty cell too, since no search has ever had to go past that group. Inserting a key that already exists
+ * <b>updates</b> its value. Every group whose control bytes are read counts as one probe, and so does every key
+ * compared against the one searched for.</p>
+ *
+ * @author Yosefe Eshete
+ *
+ * @see HashTable
+ * @see LinearProbingHashTable
+ * @see RobinHoodHashTable
+ * @see CollisionResolver
+ */
+public class SwissHashTable implements HashTable {
+
+    /* ********************************************************************/
+    /* ** INSERT ANY PRIVATE METHODS OR FIELDS YOU WANT TO USE HERE: ******/
+    /* ********************************************************************/
+
+    /**
+     * The number of cells whose control bytes are scanned together.
+     */
+    public static final int GROUP_SIZE = 8;
+
+    /**
+     * The fraction of the capacity that live entries and tombstones may take up.
+     */
+    public static final double MAX_LOAD_FACTOR = 7 / 8.0;
+
+    private static final int EMPTY = 0x80;      // 1000 0000
+    private static final int DELETED = 0xFE;    // 1111 1110. Full cells are 0xxx xxxx, where xxx xxxx is the tag.
+    private static final long LSBS = 0x0101010101010101L;
+    private static final long MSBS = 0x8080808080808080L;
+    private static final long EMPTY_GROUP = EMPTY * LSBS;
+    private static final int INITIAL_CAPACITY = 2 * GROUP_SIZE;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] control;     // Byte i of control[g] (counting from the lowest) belongs to cell GROUP_SIZE * g + i.
+    private String[] keys;
+    private String[] values;
+    private int count;
+    private int occupied;       // Live entries plus tombstones.
+    private HashFunction hashFunction;
+
+    // The bytes of group which are equal to tag have their top bit set. A byte right above a match can be set too,
+    // so callers still have to compare keys, which they would anyway.
+    private static long match(long group, int tag) {
+        long x = group ^ (LSBS * tag);
+        return (x - LSBS) & ~x & MSBS;
+    }
+
+    // The bytes of group which are EMPTY have their top bit set. Only EMPTY has both bit 7 set and bit 1 unset.
+    private static long matchEmpty(long group) {
+        return group & (~group << 6) & MSBS;
+    }
+
+    // The bytes of group which are EMPTY or DELETED have their top bit set.
+    private static long matchFree(long group) {
+        return group & MSBS;
+    }
+
+    // The cell of the lowest byte set in a match of group g.
+    private static int cellOf(int g, long match) {
+        return g * GROUP_SIZE + (Long.numberOfTrailingZeros(match) >>> 3);
+    }
+
+    // The hash of key, with its bits mixed so that both the group (high 25 bits) and the tag (low 7) are good.
+    private int hashOf(String key) {
+        int h = hashFunction.hash(key);
+        h ^= h >>> 16;    // The finalizer of MurmurHash3.
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private int controlOf(int cell) {
+        return (int) (control[cell / GROUP_SIZE] >>> ((cell % GROUP_SIZE) * 8)) & 0xFF;
+    }
+
+    private void setControl(int cell, int b) {
+        int shift = (cell % GROUP_SIZE) * 8;
+        control[cell / GROUP_SIZE] = (control[cell / GROUP_SIZE] & ~(0xFFL << shift)) | ((long) b << shift);
+    }
+
+    private int maxOccupied() {
+        return (int) (keys.length * MAX_LOAD_FACTOR);
+    }
+
+    // The cell of key, or -1 if key is not in the table.
+    private int find(String key, int hash) {
+        int mask = control.length - 1;
+        int g = (hash >>> 7) & mask;
+        long group;
+        long m;
+        int cell;
+
+        for (int i = 1; ; i++) {
+            group = control[g];
+            for (m = match(group, hash & 0x7F); m != 0; m &= m - 1) {
+                cell = cellOf(g, m);
+                if (key.equals(keys[cell])) {
+                    return cell;
+                }
+            }
+            if (matchEmpty(group) != 0) {
+                return -1;
+            }
+            g = (g + i) & mask;
+        }
+    }
+
+    // Same as find(), but also counts probes: the cell is returned in the low 32 bits and the probes in the high 32.
+    private long findCounting(String key, int hash) {
+        int mask = control.length - 1;
+        int g = (hash >>> 7) & mask;
+        int probeCount = 0;
+        long group;
+        long m;
+        int cell;
+
+        for (int i = 1; ; i++) {
+            group = control[g];
+            probeCount++;
+            for (m = match(group, hash & 0x7F); m != 0; m &= m - 1) {
+                cell = cellOf(g, m);
+                probeCount++;
+                if (key.equals(keys[cell])) {
+                    return ((long) probeCount << 32) | cell;
+                }
+            }
+            if (matchEmpty(group) != 0) {
+                return ((long) probeCount << 32) | 0xFFFFFFFFL;
+            }
+            g = (g + i) & mask;
+        }
+    }
+
+    // The first empty or deleted cell on the probe sequence of hash. There always is one, since the table is never full.
+    private int findFree(int hash) {
+        int mask = control.length - 1;
+        int g = (hash >>> 7) & mask;
+        long m;
+
+        for (int i = 1; ; i++) {
+            m = matchFree(control[g]);
+            if (m != 0) {
+                return cellOf(g, m);
+            }
+            g = (g + i) & mask;
+        }
+    }
+
+    // Puts a key that is known not to be in the table into a free cell, without any checks for room.
+    private void insert(String key, String value, int hash) {
+        int cell = findFree(hash);
+        if (controlOf(cell) == EMPTY) {
+            occupied++;
+        }
+        setControl(cell, hash & 0x7F);
+        keys[cell] = key;
+        values[cell] = value;
+        count++;
+    }
+
+    // Re-inserts every live entry into new arrays of the given capacity, dropping all tombstones.
+    // Returns the number of cells visited plus the number of entries re-inserted.
+    private int rehash(int capacity) {
+        String[] oldKeys = keys;
+        String[] oldValues = values;
+        int probeCount = oldKeys.length;
+
+        control = new long[capacity / GROUP_SIZE];
+        Arrays.fill(control, EMPTY_GROUP);
+        keys = new String[capacity];
+        values = new String[capacity];
+        count = 0;
+        occupied = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldKeys[i], oldValues[i], hashOf(oldKeys[i]));
+                probeCount++;
+            }
+        }
+        return probeCount;
+    }
+
+    private static int capacityFor(int entries, int from) {
+        int capacity = from;
+        while (capacity * MAX_LOAD_FACTOR < entries) {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("Cannot grow past " + MAX_CAPACITY + " cells.");
+            }
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /* ******************************************/
+    /*  IMPLEMENT THE FOLLOWING PUBLIC METHODS: */
+    /* **************************************** */
+
+    /**
+     * Default constructor. Initializes the internal storage with two groups of cells, and hashes keys with
+     * {@link HashFunction#STRING_HASH_CODE}.
+     */
+    public SwissHashTable() {
+        this(HashFunction.STRING_HASH_CODE);
+    }
+
+    /**
+     * Constructor with a hash function. Initializes the internal storage with two groups of cells.
+     * @param hashFunction The {@link HashFunction} that turns keys into hash codes, e.g {@link HashFunction#seeded()}.
+     */
+    public SwissHashTable(HashFunction hashFunction) {
+        this.hashFunction = hashFunction;
+        control = new long[INITIAL_CAPACITY / GROUP_SIZE];
+        Arrays.fill(control, EMPTY_GROUP);
+        keys = new String[INITIAL_CAPACITY];
+        values = new String[INITIAL_CAPACITY];
+        count = 0;
+        occupied = 0;
+    }
+
+    /**
+     * Inserts the pair &lt;key, value&gt; into this, or updates the value of key if it is already in this. A new
+     * key goes into the first empty or deleted cell of its probe sequence. If it would take an empty cell past
+     * {@link #MAX_LOAD_FACTOR}, the table is first rehashed, at twice the capacity unless most of the cells it would
+     * free are tombstones.
+     * @param key The record's key.
+     * @param value The record's value.
+     * @throws IllegalArgumentException if either argument is {@code null}.
+     * @return The {@link phonebook.utils.Probes} with the value added and the number of probes it makes, rehashing included.
+     */
+    @Override
+    public Probes put(String key, String value) {
+        int hash;
+        long found;
+        int cell;
+        int probeCount;
+
+        if (key == null || value == null) {
+            throw new IllegalArgumentException();
+        }
+
+        hash = hashOf(key);
+        found = findCounting(key, hash);
+        probeCount = (int) (found >>> 32);
+        cell = (int) found;
+        if (cell >= 0) {
+            values[cell] = value;
+            return new Probes(value, probeCount);
+        }
+
+        if (occupied >= maxOccupied() && controlOf(findFree(hash)) == EMPTY) {
+            // Growing only pays off if the live entries need the room; otherwise getting rid of tombstones does.
+            probeCount += rehash((count + 1 > maxOccupied() / 2) ? capacityFor(count + 1, 2 * keys.length) : keys.length);
+        }
+        insert(key, value, hash);
+        return new Probes(value, probeCount + 1);
+    }
+
+    /**
+     * Grows this to the smallest power of two capacity that holds the given number of entries under
+     * {@link #MAX_LOAD_FACTOR}, if it doesn't already.
+     * @param entries The number of entries this should be able to hold.
+     * @return The number of probes made while rehashing, 0 if no rehashing was needed.
+     * @throws IllegalStateException if the capacity would have to go past 2<sup>30</sup>.
+     */
+    @Override
+    public int ensureCapacity(int entries) {
+        int capacity = capacityFor(entries, keys.length);
+        return (capacity == keys.length) ? 0 : rehash(capacity);
+    }
+
+    @Override
+    public int compact() {
+        return (occupied > count) ? rehash(keys.length) : 0;
+    }
+
+    @Override
+    public Probes get(String key) {
+        long found;
+        int cell;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        found = findCounting(key, hashOf(key));
+        cell = (int) found;
+        return new Probes((cell >= 0) ? values[cell] : null, (int) (found >>> 32));
+    }
+
+    @Override
+    public String lookup(String key) {
+        int cell = (key == null) ? -1 : find(key, hashOf(key));
+        return (cell >= 0) ? values[cell] : null;
+    }
+
+    /**
+     * <b>Return</b> the value associated with key in the {@link HashTable}, and <b>remove</b> it from the table. Its cell
+     * goes back to empty if another cell of its group is empty, and becomes a tombstone otherwise.
+     * @param key The key to search for.
+     * @return The {@link phonebook.utils.Probes} with associated value and the number of probe used. If the key is {@code null}, return value {@code null}
+     * and 0 as number of probes; if the key doesn't exist in the database, return {@code null} and the number of probes used.
+     */
+    @Override
+    public Probes remove(String key) {
+        long found;
+        int cell;
+        String value;
+
+        if (key == null) {
+            return new Probes(null, 0);
+        }
+        found = findCounting(key, hashOf(key));
+        cell = (int) found;
+        if (cell < 0) {
+            return new Probes(null, (int) (found >>> 32));
+        }
+        value = values[cell];
+        if (matchEmpty(control[cell / GROUP_SIZE]) != 0) {
+            setControl(cell, EMPTY);
+            occupied--;
+        } else {
+            setControl(cell, DELETED);
+        }
+        keys[cell] = null;
+        values[cell] = null;
+        count--;
+        return new Probes(value, (int) (found >>> 32));
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return key != null && find(key, hashOf(key)) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value != null) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && values[i].equals(value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int capacity() {
+        return keys.length;
+    }
+}
@@ -0,0 +1,162 @@
+package phonebook.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>{@link Histogram} counts non-negative {@code long} samples, such as the number of {@link Probes} of an operation
+ * or its duration in nanoseconds, in <b>power of two</b> buckets: bucket 0 counts the samples equal to 0, and
+ * bucket i &gt; 0 counts the samples in [2<sup>i - 1</sup>, 2<sup>i</sup>). Recording a sample takes constant time and
+ * no allocation, so that a {@link Histogram} can sit on the hot path of the structure it measures. The count, sum and
+ * maximum of the samples are kept exactly; percentiles are only as precise as the buckets.</p>
+ *
+ * <p>A {@link Histogram} can be recorded into and read from different threads at the same time. A reader sees every
+ * sample recorded before it started, and possibly some of the ones recorded while it reads.</p>
+ *
+ * @author Yosefe Eshete
+ * @see Probes
+ * @see phonebook.hashes.InstrumentedHashTable
+ */
+public class Histogram {
+
+    /**
+     * The number of buckets of every {@link Histogram}: one for 0, and one for every possible highest set bit.
+     */
+    public static final int BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Returns the bucket that a sample falls into.
+     * @param sample A non-negative sample.
+     * @return 0 for 0, or the position of the highest set bit of sample, plus one.
+     */
+    public static int bucketOf(long sample) {
+        return Long.SIZE - Long.numberOfLeadingZeros(sample);
+    }
+
+    /**
+     * Returns the largest sample that falls into a bucket.
+     * @param bucket A bucket between 0 and {@link #BUCKETS} - 1.
+     * @return 2<sup>bucket</sup> - 1.
+     */
+    public static long upperBound(int bucket) {
+        return (bucket == Long.SIZE - 1) ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * Records a sample.
+     * @param sample The sample to record.
+     * @throws IllegalArgumentException if sample is negative.
+     */
+    public void record(long sample) {
+        if (sample < 0)
+            throw new IllegalArgumentException("record(): Provided a negative sample: " + sample + ".");
+        buckets.incrementAndGet(bucketOf(sample));
+        count.increment();
+        sum.add(sample);
+        max.accumulate(sample);
+    }
+
+    /**
+     * Adds the samples of another {@link Histogram} to this one, as if they had been recorded here too.
+     * @param other The {@link Histogram} whose samples to add. It is not changed.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.addAndGet(i, other.buckets.get(i));
+        }
+        count.add(other.count());
+        sum.add(other.sum());
+        max.accumulate(other.max());
+    }
+
+    /**
+     * Returns the number of samples recorded.
+     * @return The number of samples recorded since this was created or last {@link #reset()}.
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the samples recorded.
+     * @return The sum of the samples recorded since this was created or last {@link #reset()}.
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the largest sample recorded.
+     * @return The largest sample recorded, or 0 if there is none.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns the average sample.
+     * @return The average of the samples recorded, or 0 if there is none.
+     */
+    public double mean() {
+        long n = count();
+        return (n == 0) ? 0 : (double) sum() / n;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the samples: the upper bound of the first bucket at which
+     * the given fraction of samples has been counted, but no more than {@link #max()}.
+     * @param fraction A fraction between 0 and 1, e.g 0.99 for the 99th percentile.
+     * @return A sample that at least fraction of the recorded samples are less than or equal to, or 0 if there is none.
+     * @throws IllegalArgumentException if fraction is not between 0 and 1.
+     */
+    public long percentile(double fraction) {
+        long[] counts = buckets();
+        long total = 0;
+        long seen = 0;
+        long target;
+
+        if (!(fraction >= 0 && fraction <= 1))
+            throw new IllegalArgumentException("percentile(): Provided fraction=" + fraction + ".");
+        for (long c : counts) {
+            total += c;
+        }
+        target = (long) Math.ceil(fraction * total);
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target && seen > 0) {
+                return Math.min(upperBound(i), max());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns a copy of the buckets.
+     * @return An array of {@link #BUCKETS} counts, where element i is the number of samples that fell into bucket i.
+     */
+    public long[] buckets() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = buckets.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Forgets every sample recorded so far.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,100 @@
+package phonebook.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * <p>A jUnit testing framework for {@link Histogram}.</p>
+ *
+ * @see Histogram
+ * @author Yosefe Eshete
+ */
+public class HistogramTests {
+
+    private Histogram histogram;
+
+    /**
+     * Instantiates the {@link Histogram} instance that will be tested.
+     */
+    @Before
+    public void setUp(){
+        histogram = new Histogram();
+    }
+
+    /**
+     * Throws away the {@link Histogram} instance tested.
+     */
+    @After
+    public void tearDown(){
+        histogram = null;
+    }
+
+    /**
+     * Tests the power of two buckets of {@link Histogram#bucketOf(long)}.
+     */
+    @Test
+    public void testBuckets() {
+        assertEquals(0, Histogram.bucketOf(0));
+        assertEquals(1, Histogram.bucketOf(1));
+        assertEquals(2, Histogram.bucketOf(2));
+        assertEquals(2, Histogram.bucketOf(3));
+        assertEquals(3, Histogram.bucketOf(4));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(7, Histogram.upperBound(3));
+        assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.BUCKETS - 1));
+    }
+
+    /**
+     * Tests count, sum, mean, max and percentiles after recording some samples.
+     */
+    @Test
+    public void testRecord() {
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.mean(), 0);
+        for (int i = 0; i < 98; i++) {
+            histogram.record(1);
+        }
+        histogram.record(5);
+        histogram.record(100);
+
+        assertEquals(100, histogram.count());
+        assertEquals(203, histogram.sum());
+        assertEquals(2.03, histogram.mean(), 1e-9);
+        assertEquals(100, histogram.max());
+        assertEquals(1, histogram.percentile(0.5));
+        assertEquals(7, histogram.percentile(0.99));
+        assertEquals("The last bucket should be capped by the maximum.", 100, histogram.percentile(1));
+        assertEquals(98, histogram.buckets()[1]);
+
+        Histogram other = new Histogram();
+        other.record(0);
+        histogram.add(other);
+        assertEquals(101, histogram.count());
+        assertEquals(1, histogram.buckets()[0]);
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.buckets()[1]);
+    }
+
+    /**
+     * Tests that invalid arguments are rejected.
+     */
+    @Test
+    public void testIllegalArguments() {
+        try {
+            histogram.record(-1);
+            fail("Negative samples should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+        try {
+            histogram.percentile(1.5);
+            fail("Fractions above 1 should be rejected.");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
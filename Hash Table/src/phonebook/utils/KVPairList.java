@@ -128,7 +128,7 @@ public class KVPairList implements Iterable<KVPair>{
                 }
                 if(current == tail){
                     assert tail.next == null : "If we find the element at the end of the list, the next element should be null.";
-                    tail = tail.next;
+                    tail = previous;
                 }
                 count--;
                 break;
@@ -166,7 +166,7 @@ public class KVPairList implements Iterable<KVPair>{
                 }
                 if(current == tail){
                     assert tail.next == null : "If we find the element at the end of the list, the next element should be null.";
-                    tail = tail.next;
+                    tail = previous;
                 }
                 count--;
                 break;
@@ -198,7 +198,7 @@ public class KVPairList implements Iterable<KVPair>{
                 }
                 if(current == tail){
                     assert tail.next == null : "If we find the element at the end of the list, the next element should be null.";
-                    tail = tail.next;
+                    tail = previous;
                 }
                 count--;
                 break;
@@ -226,6 +226,21 @@ public class KVPairList implements Iterable<KVPair>{
         return false;
     }
 
+    /**
+     * Returns the value of the first pair with the given key, like {@link #getValue(String)}, but without allocating
+     * a {@link Probes} instance.
+     * @param key The &quot;key&quot; {@link String} in the pair.
+     * @return The value of the first pair &lt; key, value &gt; in the {@link KVPairList}, or {@code null} if there is none.
+     */
+    public String lookup(String key){
+        for (Node current = head; current != null; current = current.next) {
+            if (current.pair.getKey().equals(key)){
+                return current.pair.getValue();
+            }
+        }
+        return null;
+    }
+
     /**
      * Searches the {@link KVPairList} for a pair that has key as the first component of a pair &lt; key, value &gt;
      * and reports if it found it. There might be   more than one occurrences of &lt; key, value &gt; in the list: this method
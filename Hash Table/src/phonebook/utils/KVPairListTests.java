@@ -180,4 +180,24 @@ public class KVPairListTests {
         assertFalse("A KVPairList with two duplicate nodes and one successful deletion should NOT report that it's empty.", list.isEmpty());
         assertEquals("A KVPairList with two duplicate nodes and one successful deletion should report a size of 1.", 1 , list.size());
     }
+
+    @Test
+    public void testTailDeletions(){
+        list.addBack("Joseph", "890-567-9002");
+        list.addBack("Adam", "707-890-3568");
+        list.addBack("Rayeesha", "403-111-2000");
+
+        // Deleting the last node should make its predecessor the new tail, so that we can keep appending.
+        assertEquals("403-111-2000", list.removeByKey("Rayeesha").getValue());
+        list.remove("Adam", "707-890-3568");
+        try {
+            list.addBack("Marie", "789-429-1095");
+        } catch(Throwable t){
+            fail(format(t));
+        }
+        assertEquals("A KVPairList with two deletions from its back and one insertion should report a size of 2.", 2, list.size());
+        assertTrue("After inserting it, we should be able to find a key in the KVPairList.", list.containsKVPair("Marie", "789-429-1095"));
+        assertEquals("890-567-9002", list.removeByValue("890-567-9002").getValue());
+        assertEquals("789-429-1095", list.getValue("Marie").getValue());
+    }
 }
@@ -127,13 +127,12 @@ public class PrimeGeneratorTests {
         }
         assertNotNull("A call to getPreviousPrime() when getCurrentPrime() returns 2 should have thrown a NoMorePrimesException", rexc);
 
-        // The biggest prime number we store is 7907. We start making calls to getNextPrime() which will *more than double*
-        // the current prime number every time. 2^12 = 4096 and 2^13 = 8192. Without even looking at my list of primes
-        // I know that in at most 12 calls to getNextPrime() (the first one gives me 13) I am reaching a number that is definitely
-        // beyond my list of current primes.
+        // The biggest prime number we can return is PrimeGenerator.MAX_PRIME, just below 2^31. We start making calls
+        // to getNextPrime() which will *almost double* the current prime number every time. Starting from 7, no more than
+        // 30 calls should take us there, after which the next call has to throw.
         rexc = null;
         int iterThrown = 0;
-        for(int i = 0; i < 15; i++){
+        for(int i = 0; i < 40 && rexc == null; i++){
             // Embedding the try block inside the for loop makes the loop very slow, but allows for the index 'i' to be
             // visible to the scope of the catch-blocks. This in turn allows us to throw an AssertionError with information
             // about exactly *which* iteration failed.
@@ -148,6 +147,8 @@ public class PrimeGeneratorTests {
             }
         }
         assertNotNull("Was expecting a NoMorePrimesException after " + (iterThrown + 1) + " calls to getNextPrime()", rexc);
+        assertEquals("Expected the generator to stop at the largest prime that fits an array length.",
+                PrimeGenerator.MAX_PRIME, pg.getCurrPrime());
     }
 
     /**
@@ -178,4 +179,47 @@ public class PrimeGeneratorTests {
                 " calls to getPreviousPrime() and one call to reset(), we did not get 7 as the current prime number.",
                 7, pg.getCurrPrime());
     }
+
+    /**
+     * Tests that {@link PrimeGenerator#getNextPrime()} and {@link PrimeGenerator#getPreviousPrime()} keep following the
+     * same rules once they have walked past the primes we store, and that walking back down lands on stored primes again.
+     */
+    @Test
+    public void testComputedPrimes(){
+        int[] chain = new int[30];
+        int n = 0;
+        chain[n++] = pg.getCurrPrime();
+        while (pg.getCurrPrime() < 1_000_000) {
+            int prev = pg.getCurrPrime();
+            int next = pg.getNextPrime();
+            assertTrue("Prime " + next + " should be smaller than twice " + prev + ".", next < 2 * prev);
+            // Our stored list of primes has gaps, so only the computed ones are guaranteed to be the largest such prime.
+            for (int k = next + 1; next > 7907 && k < 2 * prev; k++) {
+                assertFalse(next + " is not the largest prime below twice " + prev + ", " + k + " is.", PrimeGenerator.isPrime(k));
+            }
+            chain[n++] = next;
+        }
+        for (int k = 2; k < 20000; k++) {
+            boolean trial = true;
+            for (int d = 2; d * d <= k && trial; d++) {
+                trial = k % d != 0;
+            }
+            assertEquals("Miller-Rabin disagrees with trial division on " + k + ".", trial, PrimeGenerator.isPrime(k));
+        }
+        assertFalse("A strong pseudoprime to bases 2, 3 and 5 was reported as prime.", PrimeGenerator.isPrime(25326001));
+        assertTrue(PrimeGenerator.isPrime(PrimeGenerator.MAX_PRIME));
+
+        // Walking back down should go through primes greater than half of the current one, ending up at 7 again.
+        while (pg.getCurrPrime() > 7) {
+            int prev = pg.getCurrPrime();
+            int p = pg.getPreviousPrime();
+            assertTrue("Prime " + p + " should be greater than half of " + prev + ".", 2 * p > prev);
+            assertTrue("Prime " + p + " should be smaller than " + prev + ".", p < prev);
+        }
+        assertEquals(7, pg.getCurrPrime());
+        pg.reset();
+        for (int i = 1; i < n; i++) {
+            assertEquals("The computed chain of primes should not depend on the instance.", chain[i], pg.getNextPrime());
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package phonebook.utils;
+
+/**
+ * <p>{@link StringPool} maps every string to a <b>canonical</b> instance of it: the first equal string it was given,
+ * so that a structure which runs all of its strings through {@link #intern(String)} holds each distinct string only once,
+ * however many equal copies of it it was handed. Unlike {@link String#intern()}, a {@link StringPool} belongs to the
+ * structure that uses it, and forgets its strings with {@link #clear()} or when it becomes garbage itself.</p>
+ *
+ * <p>The strings are kept in a single array, with linear probing over a power of two capacity, so the pool costs one
+ * reference per cell and creates no object per string. Strings cannot be removed one by one: a structure whose strings
+ * come and go should {@link #clear()} the pool once in a while, and intern the strings it still holds again.</p>
+ *
+ * @author Yosefe Eshete
+ * @see phonebook.Phonebook
+ */
+public class StringPool {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private String[] strings = new String[MIN_CAPACITY];
+    private int count;
+
+    private int cellOf(String s, int mask) {
+        int h = s.hashCode() * 0x9E3779B9;    // Spread the bits of hashCode() over the low ones too.
+        int cell = (h ^ (h >>> 16)) & mask;
+        while (strings[cell] != null && !strings[cell].equals(s)) {
+            cell = (cell + 1) & mask;
+        }
+        return cell;
+    }
+
+    private void grow() {
+        String[] old = strings;
+        strings = new String[old.length * 2];
+        for (String s : old) {
+            if (s != null) {
+                strings[cellOf(s, strings.length - 1)] = s;
+            }
+        }
+    }
+
+    /**
+     * Returns the canonical instance of a string, which is s itself if no equal string was interned before.
+     * @param s The string to intern.
+     * @return A string equal to s, which is the same instance for every equal s, until the next {@link #clear()}.
+     * {@code null} if s is {@code null}.
+     */
+    public String intern(String s) {
+        int cell;
+        if (s == null) {
+            return null;
+        }
+        cell = cellOf(s, strings.length - 1);
+        if (strings[cell] != null) {
+            return strings[cell];
+        }
+        strings[cell] = s;
+        if (++count > strings.length / 2) {
+            grow();
+        }
+        return s;
+    }
+
+    /**
+     * Forgets every string. Strings interned after this call become the new canonical instances.
+     */
+    public void clear() {
+        strings = new String[MIN_CAPACITY];
+        count = 0;
+    }
+
+    /**
+     * Returns the number of distinct strings in the pool.
+     * @return The number of distinct strings interned since this was created or last {@link #clear()}ed.
+     */
+    public int size() {
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package phonebook.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * <p>A jUnit testing framework for {@link StringPool}.</p>
+ *
+ * @see StringPool
+ * @author Yosefe Eshete
+ */
+public class StringPoolTests {
+
+    private StringPool pool;
+
+    /**
+     * Instantiates the {@link StringPool} instance that will be tested.
+     */
+    @Before
+    public void setUp(){
+        pool = new StringPool();
+    }
+
+    /**
+     * Throws away the {@link StringPool} instance tested.
+     */
+    @After
+    public void tearDown(){
+        pool = null;
+    }
+
+    /**
+     * Tests that equal strings are interned to the first of them, across the growth of the pool.
+     */
+    @Test
+    public void testIntern() {
+        String[] first = new String[10000];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = "301-405-" + i;
+            assertSame(first[i], pool.intern(first[i]));
+        }
+        assertEquals(first.length, pool.size());
+        for (int i = 0; i < first.length; i++) {
+            String copy = "301-405-" + i;
+            assertTrue(copy != first[i]);
+            assertSame(first[i], pool.intern(copy));
+        }
+        assertEquals(first.length, pool.size());
+        assertNull(pool.intern(null));
+    }
+
+    /**
+     * Tests that {@link StringPool#clear()} forgets the canonical instances.
+     */
+    @Test
+    public void testClear() {
+        String first = new String("Alice");
+        String second = new String("Alice");
+        pool.intern(first);
+        pool.clear();
+        assertEquals(0, pool.size());
+        assertSame(second, pool.intern(second));
+        assertSame(second, pool.intern(first));
+    }
+}